@@ -0,0 +1,227 @@
+package UTester;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A single execution of all the runs of one {@link UTester.AsyncTest}. Up to maxInFlight runs
+ * are started at once, and each one that completes starts the next, so no thread waits on a run.
+ * Timeouts are enforced with {@link CompletableFuture#completeOnTimeout}, whose single shared
+ * timer thread completes late runs as failed.
+ * <p>
+ * Runs are started on the calling thread or on whichever thread completed an earlier run, so
+ * {@link UTester.TestRandom} is only seeded while a run starts, and output is not captured.
+ */
+final class AsyncExecution {
+    private final AsyncTest test;
+    private final int numRuns;
+    private final int maxInFlight;
+    private final FailureCollector failures;
+    private final Duration runTimeout;
+    private final Duration testTimeout;
+    private final int maxFailures;
+    private final long rootSeed;
+    private final TestProgress progress;
+
+    // Completes a run whose time is up, instead of a TimeoutException which the test could throw
+    private static final TestResult TIMED_OUT = TestResult.failure();
+
+    private final CompletableFuture<TestReport> report = new CompletableFuture<>();
+    // Counts requests to start runs, so that only one thread starts runs at a time, and a run
+    // which completes immediately does not recurse into starting the next one
+    private final AtomicInteger pendingStarts = new AtomicInteger();
+    private final AtomicInteger numInFlight = new AtomicInteger();
+    private final AtomicInteger numFailures = new AtomicInteger();
+    private volatile String stopReason = null;
+
+    // Only touched by the thread which holds pendingStarts
+    private int nextRun = 0;
+
+    // Guarded by this, since runs complete on arbitrary threads
+    private final LatencyHistogram runDurations = new LatencyHistogram();
+    private int numRunsCompleted = 0;
+
+    private String testName;
+    private long startTimeNanos;
+    private long startGcCount;
+    private long startGcTimeMillis;
+
+    /** Creates an execution which counts its runs in progress, unless it is null */
+    AsyncExecution(AsyncTest test, int numRuns, FailureCollector failures, TestSettings settings,
+                   TestProgress progress) {
+        this.test = test;
+        this.numRuns = numRuns;
+        this.maxInFlight = settings.maxInFlight();
+        this.failures = failures;
+        this.runTimeout = settings.timeout();
+        this.testTimeout = settings.testTimeout();
+        this.maxFailures = settings.maxFailures();
+        this.rootSeed = settings.seed() != null ? settings.seed() : TestRandom.newRootSeed();
+        this.progress = progress;
+    }
+
+    /** Starts the first runs, and returns a future which completes once every run has */
+    CompletableFuture<TestReport> start(String testName) {
+        this.testName = testName;
+        startGcCount = TestMetrics.totalGcCount();
+        startGcTimeMillis = TestMetrics.totalGcTimeMillis();
+        startTimeNanos = System.nanoTime();
+
+        if (numRuns == 0) {
+            finish();
+        }
+        else {
+            startRuns();
+        }
+        return report;
+    }
+
+    private void startRuns() {
+        if (pendingStarts.getAndIncrement() != 0) {
+            return;
+        }
+
+        do {
+            while (nextRun < numRuns && stopReason == null
+                && numInFlight.get() < maxInFlight) {
+                if (testTimeout != null
+                    && System.nanoTime() - startTimeNanos >= testTimeout.toNanos()) {
+                    stop(String.format("Test timed out after %dms", testTimeout.toMillis()));
+                    break;
+                }
+                numInFlight.incrementAndGet();
+                startRun(nextRun++);
+            }
+            // Nothing is left to start, so the last run to complete must finish the report
+            if ((nextRun == numRuns || stopReason != null) && numInFlight.get() == 0) {
+                finish();
+            }
+        } while (pendingStarts.decrementAndGet() != 0);
+    }
+
+    private void startRun(int runIndex) {
+        long seed = TestRandom.seedForRun(rootSeed, runIndex);
+        TestRandom.currentRun().start(runIndex, seed);
+        long startNanos = System.nanoTime();
+
+        CompletableFuture<TestResult> result;
+        try {
+            // Copied, so that the timeout does not complete a future the test may share
+            result = test.run().toCompletableFuture().copy();
+        }
+        catch (RuntimeException | Error e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        Long replaySeed = TestRandom.currentRun().wasUsed() ? seed : null;
+
+        Duration limit = limitFor(startNanos);
+        if (limit != null) {
+            result.completeOnTimeout(TIMED_OUT, Math.max(0, limit.toNanos()), TimeUnit.NANOSECONDS);
+        }
+
+        result.whenComplete((value, error) -> {
+            try {
+                long durationNanos = System.nanoTime() - startNanos;
+                if (error != null) {
+                    throw error;
+                }
+
+                // Only this execution's timer completes a run with TIMED_OUT, so a test which
+                // fails with a TimeoutException of its own is rethrown like any other exception
+                TestResult.Failure failure = value == TIMED_OUT ? timeoutOf(limit)
+                    : value.didPass() ? null : value.asFailure();
+                record(
+                    runIndex, failure == null ? null : failure.withRun(runIndex, replaySeed),
+                    durationNanos
+                );
+            }
+            catch (Throwable e) {
+                // Rethrown by the runner, as an exception thrown by a synchronous test would be,
+                // which includes the NullPointerException of a test which completes with null
+                stop("Run threw an exception");
+                report.completeExceptionally(
+                    e instanceof CompletionException && e.getCause() != null ? e.getCause() : e
+                );
+            }
+            finally {
+                numInFlight.decrementAndGet();
+                startRuns();
+            }
+        });
+    }
+
+    /** Returns how long a run started now may take, or null if it has no limit */
+    private Duration limitFor(long startNanos) {
+        Duration testRemaining = testTimeout == null ? null
+            : testTimeout.minusNanos(startNanos - startTimeNanos);
+        if (runTimeout == null || testRemaining == null) {
+            return runTimeout == null ? testRemaining : runTimeout;
+        }
+        return runTimeout.compareTo(testRemaining) <= 0 ? runTimeout : testRemaining;
+    }
+
+    /** Returns the failure of a run which took longer than the limit */
+    private TestResult.Failure timeoutOf(Duration limit) {
+        if (runTimeout != null && limit.equals(runTimeout)) {
+            stop(String.format("Run timed out after %dms", runTimeout.toMillis()));
+            return TestResult.timeout(runTimeout);
+        }
+        stop(String.format("Test timed out after %dms", testTimeout.toMillis()));
+        return TestResult.timeout(testTimeout);
+    }
+
+    private void record(int runIndex, TestResult.Failure failure, long durationNanos) {
+        if (failure != null) {
+            // Runs in flight may fail after the limit is reached, and are dropped like runs
+            // which were never started
+            int failureNumber = numFailures.incrementAndGet();
+            if (failureNumber >= maxFailures) {
+                stop(String.format("Stopped after %d failures", maxFailures));
+            }
+            if (failureNumber > maxFailures) {
+                return;
+            }
+        }
+        synchronized (this) {
+            runDurations.record(durationNanos);
+            numRunsCompleted++;
+            if (failure != null) {
+                failures.add(runIndex, failure);
+            }
+            // Runs complete on any thread, but only one at a time counts into the single slot
+            if (progress != null) {
+                progress.runCompleted(0, failure != null);
+            }
+        }
+    }
+
+    private void stop(String reason) {
+        if (stopReason == null) {
+            stopReason = reason;
+        }
+    }
+
+    private void finish() {
+        if (report.isDone()) {
+            return;
+        }
+        long elapsedNanos = System.nanoTime() - startTimeNanos;
+        TestReport finished;
+        synchronized (this) {
+            // CPU time and allocations are spread over threads the test does not own, so they are
+            // reported as unknown rather than as the share which happened to be measurable
+            TestMetrics metrics = new TestMetrics(
+                runDurations, -1, TestMetrics.totalGcCount() - startGcCount,
+                TestMetrics.totalGcTimeMillis() - startGcTimeMillis, 0, elapsedNanos
+            );
+            finished = new TestReport(
+                testName, numRuns, numRunsCompleted, failures, elapsedNanos, 0, "", stopReason,
+                metrics
+            );
+        }
+        report.complete(finished);
+    }
+}
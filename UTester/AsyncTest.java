@@ -0,0 +1,12 @@
+package UTester;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A test of asynchronous code, which returns a stage that completes with the result of the run
+ * instead of waiting for it. Runs with {@link UTester.TestRunner#runAsyncTest} keep many runs in
+ * progress without a thread waiting on each of them.
+ */
+public interface AsyncTest {
+    CompletionStage<TestResult> run();
+}
@@ -0,0 +1,92 @@
+package UTester;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static UTester.TerminalStyle.CYAN;
+import static UTester.TerminalStyle.RED;
+
+/**
+ * The assertions of {@link UTester.TestCaseBuilder#expectAsync}, which check the value of a stage
+ * once it completes. Each assertion returns a stage of its result, whose failures are formatted
+ * like those of the synchronous assertions. A stage which completes exceptionally fails the
+ * assertion, unless {@link #toThrow} expected it to.
+ */
+public final class AsyncTestCaseBuilder<R> {
+    private final TestCaseBuilder<R> builder;
+    private final Supplier<? extends CompletionStage<R>> supplier;
+
+    AsyncTestCaseBuilder(TestCaseBuilder<R> builder,
+                         Supplier<? extends CompletionStage<R>> supplier) {
+        this.builder = builder;
+        this.supplier = supplier;
+    }
+
+    public CompletionStage<TestResult> toEqual(R expected) {
+        return check(actual -> builder.expect(actual).toEqual(expected));
+    }
+
+    public CompletionStage<TestResult> toEqual(R expected, BiPredicate<R, R> equals) {
+        return check(actual -> builder.expect(actual).toEqual(expected, equals));
+    }
+
+    public CompletionStage<TestResult> toEqual(R expected, Diff diff) {
+        return check(actual -> builder.expect(actual).toEqual(expected, diff));
+    }
+
+    public CompletionStage<TestResult> toBeTrue() {
+        return check(actual -> builder.expect(actual).toBeTrue());
+    }
+
+    public CompletionStage<TestResult> toBeFalse() {
+        return check(actual -> builder.expect(actual).toBeFalse());
+    }
+
+    public CompletionStage<TestResult> toSatisfy(Predicate<R> predicate,
+                                                 Function<R, String> message) {
+        return check(actual -> builder.expect(actual).toSatisfy(predicate, message));
+    }
+
+    public CompletionStage<TestResult> toThrow(Class<? extends Throwable> throwableClass) {
+        return stage().handle((actual, error) -> {
+            Throwable cause = unwrap(error);
+            if (cause == null) {
+                return builder.failure(() -> String.format(
+                    "Expected to throw %s, instead got %s",
+                    CYAN.format(throwableClass.getSimpleName()),
+                    CYAN.format(builder.format(actual))
+                ));
+            }
+            return throwableClass.isInstance(cause) ? TestResult.success()
+                : builder.failure(cause::getMessage);
+        });
+    }
+
+    private CompletionStage<TestResult> check(Function<R, TestResult> assertion) {
+        return stage().handle((actual, error) -> {
+            Throwable cause = unwrap(error);
+            return cause == null ? assertion.apply(actual) : builder.failure(() -> RED.format(
+                "Expected a value, instead threw %s", CYAN.format(String.valueOf(cause))
+            ));
+        });
+    }
+
+    private CompletionStage<R> stage() {
+        try {
+            return supplier.get();
+        }
+        catch (Throwable e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null
+            ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,142 @@
+package UTester;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Timing and allocation results of earlier runs, saved to a file so that later runs can be
+ * compared with them. A baseline records every report it receives as a {@link TestReporter},
+ * and a runner compares its tests with a baseline given to
+ * {@link UTester.TestRunner#compareWith(Baseline)}:
+ * <pre>
+ * // On a known good version
+ * try (Baseline baseline = Baseline.load(path)) {
+ *     runner.addReporter(baseline);
+ *     ...
+ * }
+ * // Later
+ * runner.compareWith(Baseline.load(path));
+ * </pre>
+ * Each test keeps the histogram of its run durations, so comparisons use the distribution of
+ * run times rather than a single mean.
+ */
+public final class Baseline implements TestReporter {
+    private static final int magic = 0x55544253; // "UTBS"
+    private static final int version = 1;
+
+    private final Path path;
+    private final Map<String, Entry> entries;
+
+    private Baseline(Path path, Map<String, Entry> entries) {
+        this.path = path;
+        this.entries = entries;
+    }
+
+    /** Reads the baseline saved at path, or starts an empty one if there is none */
+    public static Baseline load(Path path) {
+        Map<String, Entry> entries = new TreeMap<>();
+        if (!Files.isRegularFile(path)) {
+            return new Baseline(path, entries);
+        }
+
+        try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(path))
+        )) {
+            if (in.readInt() != magic || in.readInt() != version) {
+                throw new IOException("Not a UTester baseline: " + path);
+            }
+            int numEntries = in.readInt();
+            for (int i = 0; i < numEntries; i++) {
+                String testName = in.readUTF();
+                entries.put(testName, new Entry(
+                    in.readInt(), in.readLong(), LatencyHistogram.read(in)
+                ));
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Baseline(path, entries);
+    }
+
+    /** Records the results of a test, replacing any earlier results of a test with its name */
+    @Override
+    public synchronized void testFinished(TestReport report) {
+        if (report.metrics() != null) {
+            entries.put(report.testName(), new Entry(
+                report.numRuns(), report.metrics().allocatedBytes(),
+                report.metrics().runDurations()
+            ));
+        }
+    }
+
+    /** Compares a report with the recorded results of its test, or null if there are none */
+    public synchronized BaselineComparison compare(TestReport report) {
+        Entry entry = entries.get(report.testName());
+        if (entry == null || report.metrics() == null || report.numRuns() == 0) {
+            return null;
+        }
+
+        TestMetrics metrics = report.metrics();
+        return new BaselineComparison(
+            entry.runDurations, metrics.runDurations(),
+            entry.allocatedBytes < 0 || entry.numRuns == 0
+                ? -1 : (double) entry.allocatedBytes / entry.numRuns,
+            metrics.allocatedBytes() < 0 ? -1 : (double) metrics.allocatedBytes() / report.numRuns()
+        );
+    }
+
+    public synchronized void save() {
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            Path temporary = Files.createTempFile(parent, ".utester", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary))
+            )) {
+                out.writeInt(magic);
+                out.writeInt(version);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().numRuns);
+                    out.writeLong(entry.getValue().allocatedBytes);
+                    entry.getValue().runDurations.write(out);
+                }
+            }
+            Files.move(
+                temporary, path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE
+            );
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Saves the baseline, so that recording can be done in a try-with-resources block */
+    @Override
+    public void close() {
+        save();
+    }
+
+    private static final class Entry {
+        private final int numRuns;
+        private final long allocatedBytes;
+        private final LatencyHistogram runDurations;
+
+        private Entry(int numRuns, long allocatedBytes, LatencyHistogram runDurations) {
+            this.numRuns = numRuns;
+            this.allocatedBytes = allocatedBytes;
+            this.runDurations = runDurations;
+        }
+    }
+}
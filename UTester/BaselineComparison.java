@@ -0,0 +1,127 @@
+package UTester;
+
+/**
+ * How the run durations and allocations of a test compare with its {@link UTester.Baseline}.
+ * <p>
+ * Run durations are compared with a one-sided Mann-Whitney U test, which asks whether a run
+ * picked at random now tends to take longer than one from the baseline, without assuming that
+ * durations are normally distributed. A test only counts as slower when that is significant
+ * and the median also grew by a noticeable amount, since with enough runs even a tiny change
+ * becomes significant. Tests with few runs rarely reach significance, so comparisons need tests
+ * which run many times.
+ */
+public final class BaselineComparison {
+    /** The probability below which a difference counts as significant */
+    public static final double significanceLevel = 0.01;
+    /** How much the median has to grow for a significant difference to count as a slowdown */
+    public static final double minSlowdown = 1.05;
+    /** How much allocations per run have to grow to count as a regression */
+    public static final double minAllocationGrowth = 1.10;
+
+    private final long baselineMedianNanos;
+    private final long medianNanos;
+    private final double pValue;
+    private final double baselineBytesPerRun;
+    private final double bytesPerRun;
+
+    BaselineComparison(LatencyHistogram baseline, LatencyHistogram current,
+                       double baselineBytesPerRun, double bytesPerRun) {
+        this.baselineMedianNanos = baseline.percentileNanos(50);
+        this.medianNanos = current.percentileNanos(50);
+        this.pValue = mannWhitneyPValue(baseline, current);
+        this.baselineBytesPerRun = baselineBytesPerRun;
+        this.bytesPerRun = bytesPerRun;
+    }
+
+    public long baselineMedianNanos() {
+        return baselineMedianNanos;
+    }
+
+    public long medianNanos() {
+        return medianNanos;
+    }
+
+    /** The current median run duration divided by the baseline's */
+    public double medianRatio() {
+        return baselineMedianNanos == 0 ? 1 : (double) medianNanos / baselineMedianNanos;
+    }
+
+    /**
+     * The probability of runs being at least this much slower than the baseline if nothing had
+     * changed
+     */
+    public double pValue() {
+        return pValue;
+    }
+
+    public boolean isSlower() {
+        return pValue < significanceLevel && medianRatio() >= minSlowdown;
+    }
+
+    /** Average bytes allocated per run in the baseline, or -1 if unknown */
+    public double baselineBytesPerRun() {
+        return baselineBytesPerRun;
+    }
+
+    /** Average bytes allocated per run now, or -1 if unknown */
+    public double bytesPerRun() {
+        return bytesPerRun;
+    }
+
+    public boolean allocatesMore() {
+        // Reading the allocation counter allocates a little itself, so ignore tiny amounts
+        return baselineBytesPerRun >= 0 && bytesPerRun >= 0
+            && bytesPerRun >= 1 && bytesPerRun > baselineBytesPerRun * minAllocationGrowth;
+    }
+
+    public boolean isRegression() {
+        return isSlower() || allocatesMore();
+    }
+
+    /**
+     * The one-sided p-value of the current durations being larger. Durations are compared by
+     * histogram bucket, so durations in the same bucket count as ties, which the variance is
+     * corrected for.
+     */
+    private static double mannWhitneyPValue(LatencyHistogram baseline, LatencyHistogram current) {
+        double n1 = current.count();
+        double n2 = baseline.count();
+        if (n1 == 0 || n2 == 0) {
+            return 1;
+        }
+
+        // U counts the pairs where the current run was slower, with ties counting half
+        double u = 0;
+        double baselineBelow = 0;
+        double tieCorrection = 0;
+        for (int i = 0; i < current.numBuckets(); i++) {
+            double currentCount = current.bucketCount(i);
+            double baselineCount = baseline.bucketCount(i);
+            u += currentCount * (baselineBelow + baselineCount / 2);
+            baselineBelow += baselineCount;
+
+            double tied = currentCount + baselineCount;
+            tieCorrection += tied * tied * tied - tied;
+        }
+
+        double n = n1 + n2;
+        double mean = n1 * n2 / 2;
+        double variance = n1 * n2 / 12 * ((n + 1) - tieCorrection / (n * (n - 1)));
+        if (variance <= 0) {
+            return 1;
+        }
+
+        // Normal approximation with a continuity correction
+        double z = (u - mean - 0.5) / Math.sqrt(variance);
+        return 0.5 * erfc(z / Math.sqrt(2));
+    }
+
+    /** The complementary error function, to within 1.2e-7 (Numerical Recipes' erfcc) */
+    private static double erfc(double x) {
+        double t = 1 / (1 + 0.5 * Math.abs(x));
+        double result = t * Math.exp(-x * x - 1.26551223 + t * (1.00002368 + t * (0.37409196
+            + t * (0.09678418 + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398
+            + t * (1.48851587 + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? result : 2 - result;
+    }
+}
@@ -0,0 +1,113 @@
+package UTester;
+
+import java.util.function.Supplier;
+
+/**
+ * Measures how long a test or a {@link TestCaseBuilder}'s supplier takes to run. Each benchmark
+ * first runs a number of unmeasured warmup iterations to let the JIT compile the code under test,
+ * then times each measurement iteration separately. Every result is fed to a {@link Blackhole}
+ * so that the work cannot be optimized away.
+ */
+public class Benchmark {
+    private final TestRunner runner;
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final int operationsPerIteration;
+
+    public Benchmark() {
+        this(TestFramework.defaultRunner());
+    }
+
+    /** Creates a benchmark which prints its reports through the given runner */
+    public Benchmark(TestRunner runner) {
+        this(runner, 10, 50, 1000);
+    }
+
+    private Benchmark(TestRunner runner, int warmupIterations, int measurementIterations,
+                      int operationsPerIteration) {
+        this.runner = runner;
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.operationsPerIteration = operationsPerIteration;
+    }
+
+    public Benchmark withWarmupIterations(int warmupIterations) {
+        return new Benchmark(
+            runner, warmupIterations, measurementIterations, operationsPerIteration
+        );
+    }
+
+    public Benchmark withMeasurementIterations(int measurementIterations) {
+        if (measurementIterations < 1) {
+            throw new IllegalArgumentException("Need at least one measurement iteration");
+        }
+        return new Benchmark(
+            runner, warmupIterations, measurementIterations, operationsPerIteration
+        );
+    }
+
+    /**
+     * Sets how many times the code under test is invoked per timed iteration. Larger values hide
+     * the cost of reading the clock for very fast code.
+     */
+    public Benchmark withOperationsPerIteration(int operationsPerIteration) {
+        if (operationsPerIteration < 1) {
+            throw new IllegalArgumentException("Need at least one operation per iteration");
+        }
+        return new Benchmark(
+            runner, warmupIterations, measurementIterations, operationsPerIteration
+        );
+    }
+
+    public BenchmarkReport run(String benchmarkName, Test test) {
+        BenchmarkReport report = execute(benchmarkName, test);
+        runner.printReport(report);
+        return report;
+    }
+
+    public <R> BenchmarkReport run(String benchmarkName, TestCaseBuilder<R> testCase) {
+        BenchmarkReport report = execute(benchmarkName, testCase);
+        runner.printReport(report);
+        return report;
+    }
+
+    public BenchmarkReport execute(String benchmarkName, Test test) {
+        return measure(benchmarkName, test::run);
+    }
+
+    public <R> BenchmarkReport execute(String benchmarkName, TestCaseBuilder<R> testCase) {
+        return measure(benchmarkName, testCase.supplier());
+    }
+
+    private <R> BenchmarkReport measure(String benchmarkName, Supplier<R> supplier) {
+        if (supplier == null) {
+            throw new IllegalArgumentException("Nothing to benchmark, call expect() first");
+        }
+
+        Blackhole blackhole = new Blackhole();
+
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(supplier, blackhole);
+        }
+
+        double[] samples = new double[measurementIterations];
+        for (int i = 0; i < measurementIterations; i++) {
+            samples[i] = (double) runIteration(supplier, blackhole) / operationsPerIteration;
+        }
+
+        return new BenchmarkReport(benchmarkName, samples, operationsPerIteration);
+    }
+
+    private <R> long runIteration(Supplier<R> supplier, Blackhole blackhole) {
+        long startTimeNanos = System.nanoTime();
+        for (int i = 0; i < operationsPerIteration; i++) {
+            blackhole.consume(supplier.get());
+        }
+        return System.nanoTime() - startTimeNanos;
+    }
+
+    /** Prints a report like {@link TestRunner#printReport(BenchmarkReport)} */
+    public static void printReport(BenchmarkReport report) {
+        TestFramework.defaultRunner().printReport(report);
+    }
+}
@@ -0,0 +1,87 @@
+package UTester;
+
+import java.util.Arrays;
+
+/** Timing statistics for one benchmark, in nanoseconds per operation */
+public final class BenchmarkReport {
+    private final String benchmarkName;
+    private final double[] sortedSamples;
+    private final int operationsPerIteration;
+    private final double mean;
+    private final double standardDeviation;
+
+    BenchmarkReport(String benchmarkName, double[] samples, int operationsPerIteration) {
+        this.benchmarkName = benchmarkName;
+        this.sortedSamples = samples.clone();
+        this.operationsPerIteration = operationsPerIteration;
+        Arrays.sort(sortedSamples);
+
+        double sum = 0;
+        for (double sample : sortedSamples) {
+            sum += sample;
+        }
+        this.mean = sum / sortedSamples.length;
+
+        double squaredDeviations = 0;
+        for (double sample : sortedSamples) {
+            squaredDeviations += (sample - mean) * (sample - mean);
+        }
+        this.standardDeviation = sortedSamples.length < 2 ? 0 :
+            Math.sqrt(squaredDeviations / (sortedSamples.length - 1));
+    }
+
+    public String benchmarkName() {
+        return benchmarkName;
+    }
+
+    public int iterations() {
+        return sortedSamples.length;
+    }
+
+    public int operationsPerIteration() {
+        return operationsPerIteration;
+    }
+
+    /** The measured time per operation of every iteration, in increasing order */
+    public double[] samples() {
+        return sortedSamples.clone();
+    }
+
+    public double mean() {
+        return mean;
+    }
+
+    public double standardDeviation() {
+        return standardDeviation;
+    }
+
+    public double min() {
+        return sortedSamples[0];
+    }
+
+    public double max() {
+        return sortedSamples[sortedSamples.length - 1];
+    }
+
+    /**
+     * Returns the sample at the given percentile (between 0 and 100), using the nearest-rank
+     * method
+     */
+    public double percentile(double percentile) {
+        int rank = (int) Math.ceil(percentile / 100 * sortedSamples.length);
+        return sortedSamples[Math.max(0, Math.min(sortedSamples.length - 1, rank - 1))];
+    }
+
+    static String formatNanos(double nanos) {
+        if (nanos < 1_000) {
+            return String.format("%.1fns", nanos);
+        }
+        if (nanos < 1_000_000) {
+            return String.format("%.2fµs", nanos / 1_000);
+        }
+        if (nanos < 1_000_000_000) {
+            return String.format("%.2fms", nanos / 1_000_000);
+        }
+        return String.format("%.3fs", nanos / 1_000_000_000);
+    }
+}
@@ -0,0 +1,51 @@
+package UTester;
+
+/**
+ * Consumes values so that the JIT compiler cannot prove they are unused and eliminate the code
+ * which computed them. Like JMH's blackhole, consuming a value is a compare against volatile
+ * fields which can never succeed, so it costs a few nanoseconds and never writes shared memory.
+ */
+public final class Blackhole {
+    // The two fields always differ, so the branches below are never taken, but the JIT has to
+    // assume that they could be because the fields are volatile
+    private volatile int int1 = 1, int2 = 2;
+    private volatile long long1 = 1, long2 = 2;
+    private volatile double double1 = 1, double2 = 2;
+    private volatile boolean bool1 = false, bool2 = true;
+    private volatile Object sink;
+    private int mask = 1;
+    private int counter = 0;
+
+    public void consume(int value) {
+        if (value == int1 & value == int2) {
+            sink = value;
+        }
+    }
+
+    public void consume(long value) {
+        if (value == long1 & value == long2) {
+            sink = value;
+        }
+    }
+
+    public void consume(double value) {
+        if (value == double1 & value == double2) {
+            sink = value;
+        }
+    }
+
+    public void consume(boolean value) {
+        if (value == bool1 & value == bool2) {
+            sink = value;
+        }
+    }
+
+    public void consume(Object value) {
+        // Objects cannot be compared away, so publish one every so often, exponentially rarely
+        counter = counter * 1664525 + 1013904223;
+        if ((counter & mask) == 0) {
+            sink = value;
+            mask = (mask << 1) + 1;
+        }
+    }
+}
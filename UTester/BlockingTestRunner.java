@@ -0,0 +1,254 @@
+package UTester;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs each repetition of a test on its own thread, so that tests which spend most of their time
+ * blocked (on sockets, files, sleeps...) can overlap. Virtual threads are used when the running
+ * JVM supports them, and plain daemon threads otherwise.
+ * <p>
+ * The test timeout of the runner's settings limits all runs together: runs started near the
+ * end get only the time which is left, and no more runs are started once it is up.
+ */
+public class BlockingTestRunner {
+    private final TestRunner runner;
+    private final int maxConcurrency;
+    private final Duration timeout;
+
+    /**
+     * @param maxConcurrency The maximum number of runs which may be in flight at once
+     * @param timeout        How long a single run may take before it is interrupted and counted
+     *                       as a failure
+     */
+    public BlockingTestRunner(int maxConcurrency, Duration timeout) {
+        this(TestFramework.defaultRunner(), maxConcurrency, timeout);
+    }
+
+    /**
+     * Creates a runner which reports through the given runner, and uses its timeout setting as
+     * the timeout of every run.
+     */
+    public BlockingTestRunner(TestRunner runner, int maxConcurrency) {
+        this(runner, maxConcurrency, runner.settings().timeout());
+    }
+
+    private BlockingTestRunner(TestRunner runner, int maxConcurrency, Duration timeout) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.runner = runner;
+        this.maxConcurrency = maxConcurrency;
+        this.timeout = timeout;
+    }
+
+    public void runTest(String testName, Test test) {
+        runTest(testName, 1, test);
+    }
+
+    public void runTest(String testName, int numRuns, Test test) {
+        runner.publish(execute(testName, numRuns, test));
+    }
+
+    public TestReport execute(String testName, int numRuns, Test test) {
+        Semaphore permits = new Semaphore(maxConcurrency);
+        LongAdder cpuNanos = new LongAdder();
+        LongAdder allocatedBytes = new LongAdder();
+        // Every run writes only its own slot, and is read only after its future completes
+        long[] runDurations = new long[numRuns];
+        boolean[] didUseRandom = new boolean[numRuns];
+        // Whether a run was limited by the time left for the test rather than its own timeout
+        boolean[] isTestLimited = new boolean[numRuns];
+        List<CompletableFuture<TestResult>> runs = new ArrayList<>(numRuns);
+        OutputCapture capture = OutputCapture.start();
+
+        Long seed = runner.settings().seed();
+        long rootSeed = seed != null ? seed : TestRandom.newRootSeed();
+        long startGcCount = TestMetrics.totalGcCount();
+        long startGcTimeMillis = TestMetrics.totalGcTimeMillis();
+        int maxFailures = runner.settings().maxFailures();
+        Duration testTimeout = runner.settings().testTimeout();
+        // Counts failures as runs complete, so that no more runs are started once enough failed
+        AtomicInteger numFailed = new AtomicInteger();
+        String stopReason = null;
+        String output = null;
+        long startTimeNanos = System.nanoTime();
+
+        try (ThreadPerTaskExecutor executor = new ThreadPerTaskExecutor()) {
+            for (int i = 0; i < numRuns && numFailed.get() < maxFailures; i++) {
+                permits.acquire();
+                Duration testRemaining = testTimeout == null ? null
+                    : testTimeout.minusNanos(System.nanoTime() - startTimeNanos);
+                if (testRemaining != null && testRemaining.toNanos() <= 0) {
+                    stopReason = testTimedOut(testTimeout);
+                    break;
+                }
+                isTestLimited[i] = testRemaining != null
+                    && (timeout == null || testRemaining.compareTo(timeout) < 0);
+
+                CompletableFuture<TestResult> run = submit(
+                    executor.service, test, i, TestRandom.seedForRun(rootSeed, i),
+                    isTestLimited[i] ? testRemaining : timeout, runDurations, didUseRandom,
+                    cpuNanos, allocatedBytes, permits, capture
+                );
+                run.whenComplete((value, error) -> {
+                    if (error != null || !value.didPass()) {
+                        numFailed.incrementAndGet();
+                    }
+                });
+                runs.add(run);
+            }
+
+            FailureCollector failures =
+                FailureCollector.keepFirst(runner.settings().maxFailuresToPrint());
+            LatencyHistogram histogram = new LatencyHistogram();
+            int numRunsCompleted = 0;
+            // Results are taken in order, so the failures kept are those of the first runs, and
+            // runs still in flight when the limit is reached are dropped
+            for (int i = 0; i < runs.size(); i++) {
+                TestResult result = await(runs.get(i), isTestLimited[i] ? testTimeout : timeout);
+                numRunsCompleted++;
+                if (isTestLimited[i] && !result.didPass() && result.asFailure().isTimeout()
+                    && stopReason == null) {
+                    stopReason = testTimedOut(testTimeout);
+                }
+                if (result.didPass() || !result.asFailure().isTimeout()) {
+                    histogram.record(runDurations[i]);
+                }
+                if (!result.didPass()) {
+                    // A run which timed out may not have finished drawing, so its seed is kept
+                    Long runSeed = didUseRandom[i] || result.asFailure().isTimeout()
+                        ? TestRandom.seedForRun(rootSeed, i) : null;
+                    failures.add(i, result.asFailure().withRun(i, runSeed));
+                    if (failures.numFailures() >= maxFailures) {
+                        stopReason = String.format("Stopped after %d failures", maxFailures);
+                        break;
+                    }
+                }
+            }
+
+            long endTimeNanos = System.nanoTime();
+            long elapsedNanos = endTimeNanos - startTimeNanos;
+
+            boolean canCountAllocations = TestFramework.currentThreadAllocatedBytes() >= 0;
+            TestMetrics metrics = new TestMetrics(
+                histogram, canCountAllocations ? allocatedBytes.sum() : -1,
+                TestMetrics.totalGcCount() - startGcCount,
+                TestMetrics.totalGcTimeMillis() - startGcTimeMillis, cpuNanos.sum(), elapsedNanos
+            );
+            output = capture.finish();
+            return new TestReport(
+                testName, numRuns, numRunsCompleted, failures, elapsedNanos, cpuNanos.sum(),
+                output, stopReason, metrics
+            );
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for test runs", e);
+        }
+        finally {
+            // A run which threw skips the report, but its capture must still go back to the
+            // pool, and runs still in flight must stop writing into it
+            if (output == null) {
+                capture.finish();
+            }
+        }
+    }
+
+    private static String testTimedOut(Duration testTimeout) {
+        return String.format("Test timed out after %dms", testTimeout.toMillis());
+    }
+
+    private CompletableFuture<TestResult> submit(ExecutorService executor, Test test,
+                                                 int runIndex, long seed, Duration limit,
+                                                 long[] runDurations, boolean[] didUseRandom,
+                                                 LongAdder cpuNanos, LongAdder allocatedBytes,
+                                                 Semaphore permits, OutputCapture capture) {
+        CompletableFuture<TestResult> result = new CompletableFuture<>();
+
+        Future<?> task = executor.submit(capture.bound(() -> {
+            long startCpuNanos = TestFramework.currentThreadCpuNanos();
+            long startAllocatedBytes = TestFramework.currentThreadAllocatedBytes();
+            TestRandom.currentRun().start(runIndex, seed);
+            long startNanos = System.nanoTime();
+            try {
+                TestResult runResult = test.run();
+                runDurations[runIndex] = System.nanoTime() - startNanos;
+                didUseRandom[runIndex] = TestRandom.currentRun().wasUsed();
+                result.complete(runResult);
+            }
+            catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+            finally {
+                cpuNanos.add(TestFramework.currentThreadCpuNanos() - startCpuNanos);
+                allocatedBytes.add(
+                    TestFramework.currentThreadAllocatedBytes() - startAllocatedBytes
+                );
+            }
+            return null;
+        }));
+
+        if (limit != null) {
+            result.orTimeout(limit.toNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        return result.whenComplete((value, error) -> {
+            // A timed out run gives its permit back straight away, so a hung test cannot
+            // starve the remaining runs even if it ignores the interrupt
+            permits.release();
+            if (error instanceof TimeoutException) {
+                task.cancel(true);
+            }
+        });
+    }
+
+    /** Waits for a run, and returns a timeout failure naming the limit if it took too long */
+    private TestResult await(CompletableFuture<TestResult> run, Duration limit) {
+        try {
+            return run.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                return TestResult.timeout(limit);
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Test run threw an exception", e.getCause());
+        }
+    }
+
+    private static final class ThreadPerTaskExecutor implements AutoCloseable {
+        private final ExecutorService service = newThreadPerTaskExecutor();
+
+        private static ExecutorService newThreadPerTaskExecutor() {
+            try {
+                return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            }
+            catch (ReflectiveOperationException e) {
+                // Virtual threads are only available from Java 21
+                return Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+
+        @Override
+        public void close() {
+            // Runs which timed out may still be stuck, so don't wait for them
+            service.shutdownNow();
+        }
+    }
+}
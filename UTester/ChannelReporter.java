@@ -0,0 +1,105 @@
+package UTester;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Base class for reporters which write text to a channel. Text is encoded straight into a fixed
+ * size buffer, which is written out whenever it fills up and at the end of every record, so a
+ * reporter never holds more than one buffer's worth of output in memory.
+ */
+public abstract class ChannelReporter implements TestReporter {
+    private static final int bufferSize = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    // Guarded by this. Reporters are often closed both by their owner and by the runner
+    private boolean isClosed = false;
+
+    protected ChannelReporter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    protected static WritableByteChannel open(Path path) {
+        try {
+            return FileChannel.open(
+                path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+            );
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public final synchronized void testFinished(TestReport report) {
+        writeReport(report);
+        flush();
+    }
+
+    /** Writes one report, using {@link #write(CharSequence)} */
+    protected abstract void writeReport(TestReport report);
+
+    /** Writes whatever ends the output, once, before the channel is closed */
+    protected void writeEnd() {}
+
+    protected final synchronized void write(CharSequence text) {
+        CharBuffer chars = CharBuffer.wrap(text);
+        encoder.reset();
+        while (encoder.encode(chars, buffer, true) == CoderResult.OVERFLOW) {
+            drain();
+        }
+        while (encoder.flush(buffer) == CoderResult.OVERFLOW) {
+            drain();
+        }
+    }
+
+    protected final synchronized void flush() {
+        drain();
+    }
+
+    private void drain() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        finally {
+            buffer.clear();
+        }
+    }
+
+    /** Ends the output and closes the channel. Closing a closed reporter does nothing */
+    @Override
+    public final synchronized void close() {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        writeEnd();
+        flush();
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
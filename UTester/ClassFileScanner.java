@@ -0,0 +1,215 @@
+package UTester;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds {@link UTester.RunTest} methods by reading class files directly, without loading the
+ * classes. Only the parts of the format needed for method annotations are decoded: the constant
+ * pool, and the attributes of each method. Everything else is skipped over.
+ */
+final class ClassFileScanner {
+    private static final String annotationDescriptor = "LUTester/RunTest;";
+    private static final byte[] annotationDescriptorBytes =
+        annotationDescriptor.getBytes(StandardCharsets.UTF_8);
+    private static final int staticFlag = 0x0008;
+
+    private ClassFileScanner() {}
+
+    /** The annotated methods in the class file, or none if it is not a valid class file */
+    static List<DiscoveredTest> scan(byte[] classFile) {
+        // Most classes contain no tests, and a class with an annotated method must mention the
+        // annotation in its constant pool, so a plain byte search rules most classes out
+        if (indexOf(classFile, annotationDescriptorBytes) < 0) {
+            return List.of();
+        }
+
+        try {
+            return parse(ByteBuffer.wrap(classFile));
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+               | ClassCastException e) {
+            return List.of();
+        }
+    }
+
+    private static List<DiscoveredTest> parse(ByteBuffer in) {
+        if (in.getInt() != 0xcafebabe) {
+            return List.of();
+        }
+        in.getShort(); // minor version
+        in.getShort(); // major version
+
+        int constantPoolCount = in.getShort() & 0xffff;
+        Object[] constants = new Object[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; i++) {
+            int tag = in.get();
+            switch (tag) {
+                case 1: // Utf8
+                    byte[] utf8 = new byte[in.getShort() & 0xffff];
+                    in.get(utf8);
+                    // Modified UTF-8 only differs from UTF-8 for characters which do not appear
+                    // in class names, method names or ordinary test names
+                    constants[i] = new String(utf8, StandardCharsets.UTF_8);
+                    break;
+                case 3: // Integer
+                    constants[i] = in.getInt();
+                    break;
+                case 4: // Float
+                    in.getInt();
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.getLong();
+                    i++; // Takes two entries
+                    break;
+                case 7: // Class
+                    constants[i] = new int[] {in.getShort() & 0xffff};
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.getShort();
+                    break;
+                case 15: // MethodHandle
+                    in.get();
+                    in.getShort();
+                    break;
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.getInt();
+                    break;
+                default:
+                    return List.of();
+            }
+        }
+
+        in.getShort(); // access flags
+        int thisClass = ((int[]) constants[in.getShort() & 0xffff])[0];
+        String className = ((String) constants[thisClass]).replace('/', '.');
+        in.getShort(); // super class
+        skip(in, 2 * (in.getShort() & 0xffff)); // interfaces
+
+        int fieldCount = in.getShort() & 0xffff;
+        for (int i = 0; i < fieldCount; i++) {
+            skip(in, 6);
+            skipAttributes(in);
+        }
+
+        List<DiscoveredTest> tests = new ArrayList<>();
+        int methodCount = in.getShort() & 0xffff;
+        for (int i = 0; i < methodCount; i++) {
+            int accessFlags = in.getShort() & 0xffff;
+            String methodName = (String) constants[in.getShort() & 0xffff];
+            String descriptor = (String) constants[in.getShort() & 0xffff];
+
+            int attributeCount = in.getShort() & 0xffff;
+            for (int j = 0; j < attributeCount; j++) {
+                String attributeName = (String) constants[in.getShort() & 0xffff];
+                int length = in.getInt();
+                int end = in.position() + length;
+                if (attributeName.equals("RuntimeVisibleAnnotations")
+                    && descriptor.startsWith("()")) {
+                    DiscoveredTest test = readAnnotations(
+                        in, constants, className, methodName, (accessFlags & staticFlag) != 0
+                    );
+                    if (test != null) {
+                        tests.add(test);
+                    }
+                }
+                in.position(end);
+            }
+        }
+        return tests;
+    }
+
+    private static DiscoveredTest readAnnotations(ByteBuffer in, Object[] constants,
+                                                  String className, String methodName,
+                                                  boolean isStatic) {
+        DiscoveredTest found = null;
+        int annotationCount = in.getShort() & 0xffff;
+        for (int i = 0; i < annotationCount; i++) {
+            String type = (String) constants[in.getShort() & 0xffff];
+            String testName = className + "." + methodName;
+            int numRuns = 1;
+
+            int pairCount = in.getShort() & 0xffff;
+            for (int j = 0; j < pairCount; j++) {
+                String elementName = (String) constants[in.getShort() & 0xffff];
+                char tag = (char) in.get();
+                if (elementName.equals("value") && tag == 's') {
+                    String value = (String) constants[in.getShort() & 0xffff];
+                    testName = value.isEmpty() ? testName : value;
+                }
+                else if (elementName.equals("runs") && tag == 'I') {
+                    numRuns = (Integer) constants[in.getShort() & 0xffff];
+                }
+                else {
+                    skipElementValue(in, tag);
+                }
+            }
+
+            if (type.equals(annotationDescriptor)) {
+                found = new DiscoveredTest(className, methodName, testName, numRuns, isStatic);
+            }
+        }
+        return found;
+    }
+
+    private static void skipElementValue(ByteBuffer in, char tag) {
+        switch (tag) {
+            case 'e': // Enum constant
+                skip(in, 4);
+                break;
+            case '@': // Nested annotation
+                in.getShort();
+                int pairCount = in.getShort() & 0xffff;
+                for (int i = 0; i < pairCount; i++) {
+                    in.getShort();
+                    skipElementValue(in, (char) in.get());
+                }
+                break;
+            case '[': // Array
+                int valueCount = in.getShort() & 0xffff;
+                for (int i = 0; i < valueCount; i++) {
+                    skipElementValue(in, (char) in.get());
+                }
+                break;
+            default: // Constants and classes
+                in.getShort();
+        }
+    }
+
+    private static void skipAttributes(ByteBuffer in) {
+        int attributeCount = in.getShort() & 0xffff;
+        for (int i = 0; i < attributeCount; i++) {
+            in.getShort();
+            skip(in, in.getInt());
+        }
+    }
+
+    private static void skip(ByteBuffer in, int numBytes) {
+        in.position(in.position() + numBytes);
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        search:
+        for (int i = 0; i <= bytes.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (bytes[i + j] != pattern[j]) {
+                    continue search;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
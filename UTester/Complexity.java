@@ -0,0 +1,48 @@
+package UTester;
+
+/** How the running time of code grows with the size of its input, for toScaleAs checks */
+public enum Complexity {
+    CONSTANT("O(1)"),
+    LOGARITHMIC("O(log n)"),
+    LINEAR("O(n)"),
+    LINEARITHMIC("O(n log n)"),
+    QUADRATIC("O(n^2)"),
+    CUBIC("O(n^3)");
+
+    private final String notation;
+
+    Complexity(String notation) {
+        this.notation = notation;
+    }
+
+    /** The growth function itself, up to a constant factor */
+    double apply(double n) {
+        switch (this) {
+            case CONSTANT:
+                return 1;
+            case LOGARITHMIC:
+                return Math.log(n);
+            case LINEAR:
+                return n;
+            case LINEARITHMIC:
+                return n * Math.log(n);
+            case QUADRATIC:
+                return n * n;
+            default:
+                return n * n * n;
+        }
+    }
+
+    /**
+     * The slope of the growth function between two sizes on a log-log scale, which is what a
+     * power law fitted to measurements between those sizes would have as its exponent
+     */
+    double slope(int minSize, int maxSize) {
+        return Math.log(apply(maxSize) / apply(minSize)) / Math.log((double) maxSize / minSize);
+    }
+
+    @Override
+    public String toString() {
+        return notation;
+    }
+}
@@ -0,0 +1,356 @@
+package UTester;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.RecordComponent;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Compares values structurally, stopping at the first difference. Arrays, lists, maps, sets,
+ * strings and records are compared element by element, and anything else with equals. Primitive
+ * arrays are compared with {@link Arrays#mismatch}, which the JIT vectorizes.
+ * <p>
+ * A difference is described by its path, such as {@code [3].name["key"]}, and a few elements
+ * around it, so that a failure never formats the whole of two large values. Other types can be
+ * compared through a view of them, for example a vector through its array of coordinates.
+ */
+public final class Diff {
+    private static final Diff STRUCTURAL = new Diff(List.of());
+
+    // How many elements are shown either side of a difference
+    private static final int CONTEXT_ELEMENTS = 2;
+    private static final int CONTEXT_CHARS = 20;
+    // Elements longer than this are cut short when shown
+    private static final int MAX_ELEMENT_CHARS = 60;
+
+    private final List<View<?>> views;
+
+    private Diff(List<View<?>> views) {
+        this.views = views;
+    }
+
+    public static Diff structural() {
+        return STRUCTURAL;
+    }
+
+    /** Compares values of the given type, including subtypes, by comparing their views */
+    public <T> Diff withView(Class<T> type, Function<? super T, ?> view) {
+        List<View<?>> newViews = new ArrayList<>(views);
+        newViews.add(new View<>(type, view));
+        return new Diff(List.copyOf(newViews));
+    }
+
+    /** Returns the first difference between the values, or null if they are equal */
+    public Mismatch mismatch(Object expected, Object actual) {
+        return compare(expected, actual);
+    }
+
+    private Mismatch compare(Object expected, Object actual) {
+        if (expected == actual) {
+            return null;
+        }
+        if (expected == null || actual == null) {
+            return leaf(expected, actual);
+        }
+
+        for (View<?> view : views) {
+            if (view.type.isInstance(expected) && view.type.isInstance(actual)) {
+                return compare(view.apply(expected), view.apply(actual));
+            }
+        }
+
+        Class<?> type = expected.getClass();
+        if (type.isArray() && actual.getClass() == type) {
+            return type.getComponentType().isPrimitive()
+                ? comparePrimitiveArrays(expected, actual)
+                : compareLists(
+                    Arrays.asList((Object[]) expected), Arrays.asList((Object[]) actual)
+                );
+        }
+        if (expected instanceof List && actual instanceof List) {
+            return compareLists((List<?>) expected, (List<?>) actual);
+        }
+        if (expected instanceof Map && actual instanceof Map) {
+            return compareMaps((Map<?, ?>) expected, (Map<?, ?>) actual);
+        }
+        if (expected instanceof Set && actual instanceof Set) {
+            return compareSets((Set<?>) expected, (Set<?>) actual);
+        }
+        if (expected instanceof String && actual instanceof String) {
+            return compareStrings((String) expected, (String) actual);
+        }
+        if (type.isRecord() && actual.getClass() == type) {
+            return compareRecords(expected, actual);
+        }
+        return expected.equals(actual) ? null : leaf(expected, actual);
+    }
+
+    private static Mismatch comparePrimitiveArrays(Object expected, Object actual) {
+        int index;
+        if (expected instanceof int[]) {
+            index = Arrays.mismatch((int[]) expected, (int[]) actual);
+        }
+        else if (expected instanceof long[]) {
+            index = Arrays.mismatch((long[]) expected, (long[]) actual);
+        }
+        else if (expected instanceof double[]) {
+            index = Arrays.mismatch((double[]) expected, (double[]) actual);
+        }
+        else if (expected instanceof float[]) {
+            index = Arrays.mismatch((float[]) expected, (float[]) actual);
+        }
+        else if (expected instanceof byte[]) {
+            index = Arrays.mismatch((byte[]) expected, (byte[]) actual);
+        }
+        else if (expected instanceof char[]) {
+            index = Arrays.mismatch((char[]) expected, (char[]) actual);
+        }
+        else if (expected instanceof short[]) {
+            index = Arrays.mismatch((short[]) expected, (short[]) actual);
+        }
+        else {
+            index = Arrays.mismatch((boolean[]) expected, (boolean[]) actual);
+        }
+
+        if (index < 0) {
+            return null;
+        }
+        int expectedLength = Array.getLength(expected);
+        int actualLength = Array.getLength(actual);
+        return new Mismatch(
+            "[" + index + "]",
+            () -> context(expectedLength, actualLength, i -> Array.get(expected, i), index),
+            () -> context(actualLength, expectedLength, i -> Array.get(actual, i), index)
+        );
+    }
+
+    private Mismatch compareLists(List<?> expected, List<?> actual) {
+        // Linked lists are walked with iterators, since get would make the walk quadratic
+        Iterator<?> expectedElements = expected.iterator();
+        Iterator<?> actualElements = actual.iterator();
+        int index = 0;
+        while (expectedElements.hasNext() && actualElements.hasNext()) {
+            Mismatch mismatch = compare(expectedElements.next(), actualElements.next());
+            if (mismatch != null) {
+                return mismatch.under("[" + index + "]");
+            }
+            index++;
+        }
+        if (expectedElements.hasNext() == actualElements.hasNext()) {
+            return null;
+        }
+
+        int end = index;
+        return new Mismatch(
+            "[" + end + "]",
+            () -> context(expected.size(), actual.size(), expected::get, end),
+            () -> context(actual.size(), expected.size(), actual::get, end)
+        );
+    }
+
+    private Mismatch compareMaps(Map<?, ?> expected, Map<?, ?> actual) {
+        for (Map.Entry<?, ?> entry : expected.entrySet()) {
+            Object key = entry.getKey();
+            if (!actual.containsKey(key)) {
+                return new Mismatch(
+                    "[" + format(key) + "]", () -> format(entry.getValue()), () -> "no entry"
+                );
+            }
+            Mismatch mismatch = compare(entry.getValue(), actual.get(key));
+            if (mismatch != null) {
+                return mismatch.under("[" + format(key) + "]");
+            }
+        }
+        if (expected.size() == actual.size()) {
+            return null;
+        }
+
+        for (Map.Entry<?, ?> entry : actual.entrySet()) {
+            if (!expected.containsKey(entry.getKey())) {
+                return new Mismatch(
+                    "[" + format(entry.getKey()) + "]",
+                    () -> "no entry", () -> format(entry.getValue())
+                );
+            }
+        }
+        return null;
+    }
+
+    private static Mismatch compareSets(Set<?> expected, Set<?> actual) {
+        for (Object element : expected) {
+            if (!actual.contains(element)) {
+                return new Mismatch(
+                    "", () -> "an element " + format(element), () -> "no element " + format(element)
+                );
+            }
+        }
+        if (expected.size() == actual.size()) {
+            return null;
+        }
+
+        for (Object element : actual) {
+            if (!expected.contains(element)) {
+                return new Mismatch(
+                    "", () -> "no element " + format(element), () -> "an element " + format(element)
+                );
+            }
+        }
+        return null;
+    }
+
+    private static Mismatch compareStrings(String expected, String actual) {
+        int length = Math.min(expected.length(), actual.length());
+        int index = 0;
+        while (index < length && expected.charAt(index) == actual.charAt(index)) {
+            index++;
+        }
+        if (index == length && expected.length() == actual.length()) {
+            return null;
+        }
+
+        int at = index;
+        return new Mismatch(
+            "[" + at + "]",
+            () -> stringContext(expected, at), () -> stringContext(actual, at)
+        );
+    }
+
+    private Mismatch compareRecords(Object expected, Object actual) {
+        for (RecordComponent component : expected.getClass().getRecordComponents()) {
+            Object expectedValue;
+            Object actualValue;
+            try {
+                component.getAccessor().setAccessible(true);
+                expectedValue = component.getAccessor().invoke(expected);
+                actualValue = component.getAccessor().invoke(actual);
+            }
+            catch (ReflectiveOperationException | RuntimeException e) {
+                // Records which cannot be taken apart are still compared, just as a whole
+                return expected.equals(actual) ? null : leaf(expected, actual);
+            }
+
+            Mismatch mismatch = compare(expectedValue, actualValue);
+            if (mismatch != null) {
+                return mismatch.under("." + component.getName());
+            }
+        }
+        return null;
+    }
+
+    private static Mismatch leaf(Object expected, Object actual) {
+        return new Mismatch("", () -> format(expected), () -> format(actual));
+    }
+
+    /** Formats the elements around index, and marks the element at it with angle brackets */
+    private static String context(int length, int otherLength, IntFunction<Object> element,
+                                  int index) {
+        int start = Math.max(0, index - CONTEXT_ELEMENTS);
+        int end = Math.min(length, index + CONTEXT_ELEMENTS + 1);
+
+        StringBuilder text = new StringBuilder("[");
+        if (start > 0) {
+            text.append("..., ");
+        }
+        for (int i = start; i < end; i++) {
+            text.append(i == start ? "" : ", ");
+            text.append(i == index ? ">" : "").append(format(element.apply(i)));
+            text.append(i == index ? "<" : "");
+        }
+        if (index >= length) {
+            text.append(length == 0 ? "><" : ", ><");
+        }
+        text.append(end < length ? ", ...]" : "]");
+        if (length != otherLength) {
+            text.append(" (length ").append(length).append(")");
+        }
+        return text.toString();
+    }
+
+    private static String stringContext(String string, int index) {
+        int start = Math.max(0, index - CONTEXT_CHARS);
+        int end = Math.min(string.length(), index + CONTEXT_CHARS);
+        return (start > 0 ? "..." : "") + "\"" + string.substring(start, index) + ">"
+            + string.substring(index, end) + "\"" + (end < string.length() ? "..." : "");
+    }
+
+    private static String format(Object value) {
+        String text;
+        if (value == null) {
+            text = "null";
+        }
+        else if (value instanceof String) {
+            text = "\"" + value + "\"";
+        }
+        else if (value.getClass().isArray()) {
+            // Only the start of a long array is formatted
+            int length = Array.getLength(value);
+            StringBuilder builder = new StringBuilder("[");
+            for (int i = 0; i < length && builder.length() <= MAX_ELEMENT_CHARS; i++) {
+                builder.append(i == 0 ? "" : ", ").append(format(Array.get(value, i)));
+            }
+            text = builder.append("]").toString();
+        }
+        else {
+            text = value.toString();
+        }
+        return text.length() <= MAX_ELEMENT_CHARS ? text
+            : text.substring(0, MAX_ELEMENT_CHARS - 3) + "...";
+    }
+
+    /**
+     * The first difference found between two values. The path leads from the compared values to
+     * the differing part, and is empty if they differ as a whole. The expected and actual parts
+     * are formatted only when asked for.
+     */
+    public static final class Mismatch {
+        private final String path;
+        private final Supplier<String> expected;
+        private final Supplier<String> actual;
+
+        private Mismatch(String path, Supplier<String> expected, Supplier<String> actual) {
+            this.path = path;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        private Mismatch under(String parentPath) {
+            return new Mismatch(parentPath + path, expected, actual);
+        }
+
+        public String path() {
+            return path;
+        }
+
+        public String expected() {
+            return expected.get();
+        }
+
+        public String actual() {
+            return actual.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "Expected %s%s, instead got %s",
+                expected(), path.isEmpty() ? "" : " at " + path, actual()
+            );
+        }
+    }
+
+    private static final class View<T> {
+        private final Class<T> type;
+        private final Function<? super T, ?> view;
+
+        private View(Class<T> type, Function<? super T, ?> view) {
+            this.type = type;
+            this.view = view;
+        }
+
+        private Object apply(Object value) {
+            return view.apply(type.cast(value));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package UTester;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * A {@link UTester.RunTest} method found by {@link UTester.TestDiscovery}. Only the names are
+ * known until {@link #load(ClassLoader)} is called, so discovering tests loads no classes.
+ */
+public final class DiscoveredTest {
+    private final String className;
+    private final String methodName;
+    private final String testName;
+    private final int numRuns;
+    private final boolean isStatic;
+
+    DiscoveredTest(String className, String methodName, String testName, int numRuns,
+                   boolean isStatic) {
+        this.className = className;
+        this.methodName = methodName;
+        this.testName = testName;
+        this.numRuns = numRuns;
+        this.isStatic = isStatic;
+    }
+
+    public String className() {
+        return className;
+    }
+
+    public String methodName() {
+        return methodName;
+    }
+
+    public String testName() {
+        return testName;
+    }
+
+    public int numRuns() {
+        return numRuns;
+    }
+
+    public boolean isStatic() {
+        return isStatic;
+    }
+
+    /** Loads the class declaring the test */
+    public Class<?> loadClass(ClassLoader classLoader) {
+        try {
+            return Class.forName(className, true, classLoader);
+        }
+        catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Could not load test class " + className, e);
+        }
+    }
+
+    /** Loads the class declaring the test, and returns a test which calls the method */
+    public Test load(ClassLoader classLoader) {
+        Method method;
+        try {
+            method = loadClass(classLoader).getDeclaredMethod(methodName);
+            method.setAccessible(true);
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("Could not find test method " + this, e);
+        }
+
+        if (Modifier.isStatic(method.getModifiers()) != isStatic) {
+            throw new IllegalStateException("Test method " + this + " changed since discovery");
+        }
+
+        if (Test.class.isAssignableFrom(method.getReturnType())) {
+            // The method builds the test once, and the built test is what is run
+            return new LazyTest(method);
+        }
+        if (TestResult.class.isAssignableFrom(method.getReturnType())) {
+            return () -> (TestResult) invoke(method);
+        }
+        throw new IllegalStateException(
+            "Test method " + this + " must return a TestResult or a Test"
+        );
+    }
+
+    private Object invoke(Method method) {
+        try {
+            Object target = null;
+            if (!isStatic) {
+                Constructor<?> constructor = method.getDeclaringClass().getDeclaredConstructor();
+                constructor.setAccessible(true);
+                target = constructor.newInstance();
+            }
+            return method.invoke(target);
+        }
+        catch (InvocationTargetException e) {
+            // Rethrow the test's own exception, as calling it directly would have done
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Test threw an exception", e.getCause());
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not call test method " + this, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return className + "." + methodName;
+    }
+
+    private final class LazyTest implements Test {
+        private final Method method;
+        private volatile Test test;
+
+        private LazyTest(Method method) {
+            this.method = method;
+        }
+
+        @Override
+        public TestResult run() {
+            Test built = test;
+            if (built == null) {
+                synchronized (this) {
+                    if (test == null) {
+                        test = (Test) invoke(method);
+                    }
+                    built = test;
+                }
+            }
+            return built.run();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package UTester;
+
+import java.util.function.*;
+
+import static UTester.TerminalStyle.CYAN;
+import static UTester.TerminalStyle.RED;
+
+/**
+ * A {@link TestCaseBuilder} specialized for double results, which never boxes the expected or
+ * actual values, and which can compare them with a tolerance.
+ */
+public class DoubleTestCaseBuilder {
+    private final DoubleSupplier supplier;
+    private final DoubleFunction<String> formatter;
+    private final Supplier<String> input;
+
+    public DoubleTestCaseBuilder() {
+        this(null, Double::toString, null);
+    }
+
+    private DoubleTestCaseBuilder(DoubleSupplier supplier, DoubleFunction<String> formatter,
+                                  Supplier<String> input) {
+        this.supplier = supplier;
+        this.formatter = formatter;
+        this.input = input;
+    }
+
+    public DoubleTestCaseBuilder expect(DoubleSupplier supplier) {
+        return new DoubleTestCaseBuilder(supplier, formatter, input);
+    }
+
+    public DoubleTestCaseBuilder expect(double value) {
+        return expect(() -> value);
+    }
+
+    public DoubleTestCaseBuilder withFormatter(DoubleFunction<String> formatter) {
+        return new DoubleTestCaseBuilder(supplier, formatter, input);
+    }
+
+    public DoubleTestCaseBuilder withInputString(Supplier<String> input) {
+        return new DoubleTestCaseBuilder(supplier, formatter, input);
+    }
+
+    public DoubleTestCaseBuilder withInputString(String input) {
+        return withInputString(() -> input);
+    }
+
+    /** Expects the exact value, with the same semantics as {@link Double#equals(Object)} */
+    public TestResult toEqual(double expected) {
+        try {
+            double actualValue = supplier.getAsDouble();
+            if (Double.compare(actualValue, expected) == 0) {
+                return TestResult.success();
+            }
+            return mismatch(expected, actualValue, "");
+        }
+        catch (Throwable e) {
+            return failure(e::getMessage);
+        }
+    }
+
+    /** Expects a value which differs from the expected one by at most epsilon */
+    public TestResult toEqualWithin(double expected, double epsilon) {
+        try {
+            double actualValue = supplier.getAsDouble();
+            if (actualValue == expected || Math.abs(actualValue - expected) <= epsilon) {
+                return TestResult.success();
+            }
+            return mismatch(expected, actualValue, " (within " + epsilon + ")");
+        }
+        catch (Throwable e) {
+            return failure(e::getMessage);
+        }
+    }
+
+    /**
+     * Expects a value which is at most maxUlps representable doubles away from the expected one.
+     * Unlike a fixed epsilon, this tolerance scales with the magnitude of the values.
+     */
+    public TestResult toEqualWithinUlps(double expected, long maxUlps) {
+        try {
+            double actualValue = supplier.getAsDouble();
+            if (ulpDistance(actualValue, expected) <= maxUlps) {
+                return TestResult.success();
+            }
+            return mismatch(expected, actualValue, " (within " + maxUlps + " ulps)");
+        }
+        catch (Throwable e) {
+            return failure(e::getMessage);
+        }
+    }
+
+    public TestResult toSatisfy(DoublePredicate predicate, DoubleFunction<String> message) {
+        try {
+            double actualValue = supplier.getAsDouble();
+            if (predicate.test(actualValue)) {
+                return TestResult.success();
+            }
+            return failure(() -> message.apply(actualValue));
+        }
+        catch (Throwable e) {
+            return failure(e::getMessage);
+        }
+    }
+
+    public TestResult toThrow(Class<Throwable> throwableClass) {
+        try {
+            double actualValue = supplier.getAsDouble();
+            return failure(() -> String.format(
+                "Expected to throw %s, instead got %s",
+                CYAN.format(throwableClass.getSimpleName()),
+                CYAN.format(formatter.apply(actualValue))
+            ));
+        }
+        catch (Throwable e) {
+            return throwableClass.isInstance(e) ? TestResult.success() : failure(e::getMessage);
+        }
+    }
+
+    public DoubleTestCaseBuilder1 testing(DoubleUnaryOperator func) {
+        return new DoubleTestCaseBuilder1(func, input == null ? null : x -> input.get(), formatter);
+    }
+
+    /**
+     * The number of representable doubles between a and b, or {@link Long#MAX_VALUE} if either
+     * is NaN.
+     */
+    static long ulpDistance(double a, double b) {
+        if (Double.isNaN(a) || Double.isNaN(b)) {
+            return a == b || Double.isNaN(a) && Double.isNaN(b) ? 0 : Long.MAX_VALUE;
+        }
+
+        // Maps doubles onto longs in the same order, so that adjacent doubles are adjacent longs
+        long x = Double.doubleToRawLongBits(a);
+        long y = Double.doubleToRawLongBits(b);
+        if (x < 0) {
+            x = Long.MIN_VALUE - x;
+        }
+        if (y < 0) {
+            y = Long.MIN_VALUE - y;
+        }
+
+        long distance = x - y;
+        // Subtraction overflows only for huge distances of opposite signs
+        return ((x ^ y) & (x ^ distance)) < 0 ? Long.MAX_VALUE : Math.abs(distance);
+    }
+
+    private TestResult.Failure mismatch(double expected, double actual, String tolerance) {
+        return failure(() -> RED.format(
+            "Expected %s%s, instead got %s",
+            CYAN.format(formatter.apply(expected)),
+            tolerance,
+            CYAN.format(formatter.apply(actual))
+        ));
+    }
+
+    private TestResult.Failure failure(Supplier<String> message) {
+        return TestResult.failure().withLazyMessage(message).withLazyInput(input);
+    }
+
+    public static class DoubleTestCaseBuilder1 {
+        private final DoubleUnaryOperator function;
+        private final DoubleFunction<String> inputFormatter;
+        private final DoubleFunction<String> outputFormatter;
+
+        private DoubleTestCaseBuilder1(DoubleUnaryOperator function,
+                                       DoubleFunction<String> inputFormatter,
+                                       DoubleFunction<String> outputFormatter) {
+            this.function = function;
+            this.inputFormatter = inputFormatter;
+            this.outputFormatter = outputFormatter;
+        }
+
+        public DoubleTestCaseBuilder1 withInputFormatter(DoubleFunction<String> formatter) {
+            return new DoubleTestCaseBuilder1(function, formatter, outputFormatter);
+        }
+
+        public DoubleTestCaseBuilder1 withOutputFormatter(DoubleFunction<String> formatter) {
+            return new DoubleTestCaseBuilder1(function, inputFormatter, formatter);
+        }
+
+        public DoubleTestCaseBuilder withInput(double input) {
+            return new DoubleTestCaseBuilder(
+                () -> function.applyAsDouble(input),
+                outputFormatter,
+                inputFormatter == null ? null : () -> inputFormatter.apply(input)
+            );
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package UTester;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+/**
+ * Keeps a bounded number of the failures of a test, while counting all of them. Either the
+ * failures of the earliest runs are kept, or a uniform random sample of all failures.
+ * <p>
+ * A collector is not thread safe. When runs are split between several threads, each thread fills
+ * its own {@link #emptyCopy()} and the copies are combined with {@link #merge(FailureCollector)}.
+ */
+public final class FailureCollector {
+    private final int capacity;
+    private final SplittableRandom random;
+    // Ordered so that the head is the kept failure which should be evicted first
+    private final PriorityQueue<Entry> kept;
+    private int numFailures = 0;
+
+    private FailureCollector(int capacity, SplittableRandom random) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Cannot keep a negative number of failures");
+        }
+        this.capacity = capacity;
+        this.random = random;
+        this.kept = new PriorityQueue<>(
+            Math.max(1, capacity), Comparator.comparingLong((Entry entry) -> entry.key).reversed()
+        );
+    }
+
+    /** Creates a collector which keeps the failures of the first capacity failing runs */
+    public static FailureCollector keepFirst(int capacity) {
+        return new FailureCollector(capacity, null);
+    }
+
+    /** Creates a collector which keeps a uniform random sample of capacity failures */
+    public static FailureCollector sample(int capacity, long seed) {
+        return new FailureCollector(capacity, new SplittableRandom(seed));
+    }
+
+    /** Creates an empty collector with the same policy, for use by another thread */
+    public FailureCollector emptyCopy() {
+        return new FailureCollector(capacity, random == null ? null : random.split());
+    }
+
+    public void add(int runIndex, TestResult.Failure failure) {
+        numFailures++;
+
+        // Sampling gives every failure a random priority and keeps the lowest ones, which is a
+        // reservoir sample that stays uniform when collectors from several threads are merged
+        offer(random == null ? runIndex : random.nextLong(), runIndex, failure);
+    }
+
+    public void merge(FailureCollector other) {
+        numFailures += other.numFailures;
+        for (Entry entry : other.kept) {
+            offer(entry.key, entry.runIndex, entry.failure);
+        }
+    }
+
+    private void offer(long key, int runIndex, TestResult.Failure failure) {
+        if (kept.size() < capacity) {
+            kept.add(new Entry(key, runIndex, failure));
+        }
+        else if (capacity > 0 && key < kept.peek().key) {
+            kept.poll();
+            kept.add(new Entry(key, runIndex, failure));
+        }
+    }
+
+    /** The total number of failures added, including ones which were not kept */
+    public int numFailures() {
+        return numFailures;
+    }
+
+    /** The kept failures, in the order of the runs that produced them */
+    public List<TestResult.Failure> failures() {
+        List<Entry> entries = new ArrayList<>(kept);
+        entries.sort(Comparator.comparingInt(entry -> entry.runIndex));
+
+        List<TestResult.Failure> failures = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            failures.add(entry.failure);
+        }
+        return failures;
+    }
+
+    private static final class Entry {
+        private final long key;
+        private final int runIndex;
+        private final TestResult.Failure failure;
+
+        private Entry(long key, int runIndex, TestResult.Failure failure) {
+            this.key = key;
+            this.runIndex = runIndex;
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package UTester;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The binary messages exchanged between a {@link UTester.ForkedTestRunner} and its worker JVMs.
+ * The parent writes the settings and the tests of one shard to the worker's standard input. The
+ * worker answers on its standard output with one report per test, in the order it ran them,
+ * followed by an end marker.
+ * <p>
+ * Strings are written as a length and UTF-8 bytes, with a length of -1 for null, so that long
+ * test output is not cut off like it would be by {@link DataOutput#writeUTF(String)}.
+ */
+final class ForkProtocol {
+    static final int magic = 0x55544652; // "UTFR"
+    static final int version = 3;
+    static final byte reportMessage = 1;
+    static final byte endMessage = 2;
+
+    private ForkProtocol() {}
+
+    static void writeSettings(DataOutput out, TestSettings settings) throws IOException {
+        out.writeInt(settings.parallelism());
+        out.writeInt(settings.maxFailuresToPrint());
+        out.writeInt(settings.maxFailures());
+        writeDuration(out, settings.timeout());
+        writeDuration(out, settings.testTimeout());
+        writeLong(out, settings.seed());
+        out.writeBoolean(settings.isColorEnabled());
+    }
+
+    static TestSettings readSettings(DataInput in) throws IOException {
+        return new TestSettings()
+            .withParallelism(in.readInt())
+            .withMaxFailuresToPrint(in.readInt())
+            .withFailFast(in.readInt())
+            .withTimeout(readDuration(in))
+            .withTestTimeout(readDuration(in))
+            .withSeed(readLong(in))
+            .withColor(in.readBoolean());
+    }
+
+    static void writeTests(DataOutput out, List<DiscoveredTest> tests) throws IOException {
+        out.writeInt(tests.size());
+        for (DiscoveredTest test : tests) {
+            writeString(out, test.className());
+            writeString(out, test.methodName());
+            writeString(out, test.testName());
+            out.writeInt(test.numRuns());
+            out.writeBoolean(test.isStatic());
+        }
+    }
+
+    static List<DiscoveredTest> readTests(DataInput in) throws IOException {
+        int numTests = in.readInt();
+        List<DiscoveredTest> tests = new ArrayList<>(numTests);
+        for (int i = 0; i < numTests; i++) {
+            tests.add(new DiscoveredTest(
+                readString(in), readString(in), readString(in), in.readInt(), in.readBoolean()
+            ));
+        }
+        return tests;
+    }
+
+    static void writeReport(DataOutput out, TestReport report) throws IOException {
+        out.writeByte(reportMessage);
+        writeString(out, report.testName());
+        out.writeInt(report.numRunsPlanned());
+        out.writeInt(report.numRuns());
+        out.writeInt(report.numFailures());
+        out.writeLong(report.elapsedNanos());
+        out.writeLong(report.cpuNanos());
+        writeString(out, report.output());
+        writeString(out, report.stopReason());
+
+        out.writeInt(report.failures().size());
+        for (TestResult.Failure failure : report.failures()) {
+            writeString(out, failure.message());
+            writeString(out, failure.input());
+            out.writeBoolean(failure.isTimeout());
+            writeLong(out, failure.runIndex() == null ? null : (long) failure.runIndex());
+            writeLong(out, failure.seed());
+        }
+
+        TestMetrics metrics = report.metrics();
+        out.writeBoolean(metrics != null);
+        if (metrics != null) {
+            metrics.runDurations().write(out);
+            out.writeLong(metrics.allocatedBytes());
+            out.writeLong(metrics.gcCount());
+            out.writeLong(metrics.gcTimeMillis());
+        }
+    }
+
+    /** Reads the report following a {@link #reportMessage} */
+    static TestReport readReport(DataInput in) throws IOException {
+        String testName = readString(in);
+        int numRunsPlanned = in.readInt();
+        int numRuns = in.readInt();
+        int numFailures = in.readInt();
+        long elapsedNanos = in.readLong();
+        long cpuNanos = in.readLong();
+        String output = readString(in);
+        String stopReason = readString(in);
+
+        int numKept = in.readInt();
+        List<TestResult.Failure> failures = new ArrayList<>(numKept);
+        for (int i = 0; i < numKept; i++) {
+            String message = readString(in);
+            String input = readString(in);
+            boolean isTimeout = in.readBoolean();
+            Long runIndex = readLong(in);
+            failures.add(TestResult.failure(
+                message, input, isTimeout, runIndex == null ? null : runIndex.intValue(),
+                readLong(in)
+            ));
+        }
+
+        TestMetrics metrics = null;
+        if (in.readBoolean()) {
+            metrics = new TestMetrics(
+                LatencyHistogram.read(in), in.readLong(), in.readLong(), in.readLong(), cpuNanos,
+                elapsedNanos
+            );
+        }
+
+        return new TestReport(
+            testName, numRunsPlanned, numRuns, failures, numFailures, elapsedNanos, cpuNanos,
+            output, stopReason, metrics
+        );
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeLong(DataOutput out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeDuration(DataOutput out, Duration duration) throws IOException {
+        writeLong(out, duration == null ? null : duration.toNanos());
+    }
+
+    private static Duration readDuration(DataInput in) throws IOException {
+        Long nanos = readLong(in);
+        return nanos == null ? null : Duration.ofNanos(nanos);
+    }
+}
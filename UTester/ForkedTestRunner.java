@@ -0,0 +1,273 @@
+package UTester;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static UTester.TerminalStyle.*;
+
+/**
+ * Runs discovered tests in separate worker JVMs, so that tests which change static state or leak
+ * memory cannot affect each other across shards, and so that more tests can run at once than a
+ * single JVM handles well. Reports stream back over each worker's standard output as the tests
+ * finish, and are printed by the runner in the order the tests were given.
+ * <p>
+ * Tests are assigned to workers longest first, each to the worker with the least work so far,
+ * using the durations recorded in a {@link UTester.ResultCache} when one is given. Tests which
+ * have never run are assumed to take as long as the average known test.
+ */
+public class ForkedTestRunner {
+    private final TestRunner runner;
+    private final int numWorkers;
+    private final List<String> jvmArgs;
+    private final ResultCache resultCache;
+
+    public ForkedTestRunner(TestRunner runner, int numWorkers) {
+        this(runner, numWorkers, List.of(), null);
+    }
+
+    private ForkedTestRunner(TestRunner runner, int numWorkers, List<String> jvmArgs,
+                             ResultCache resultCache) {
+        if (numWorkers < 1) {
+            throw new IllegalArgumentException("Must use at least one worker");
+        }
+        this.runner = runner;
+        this.numWorkers = numWorkers;
+        this.jvmArgs = jvmArgs;
+        this.resultCache = resultCache;
+    }
+
+    /** Sets extra arguments for the worker JVMs, such as {@code -Xmx512m} */
+    public ForkedTestRunner withJvmArgs(String... jvmArgs) {
+        return new ForkedTestRunner(runner, numWorkers, List.of(jvmArgs), resultCache);
+    }
+
+    /**
+     * Balances the workers using the durations in the cache, and records the new durations in it
+     * after every run
+     */
+    public ForkedTestRunner withResultCache(ResultCache resultCache) {
+        return new ForkedTestRunner(runner, numWorkers, jvmArgs, resultCache);
+    }
+
+    /** Runs every test in a worker JVM and prints the reports and a summary */
+    public List<TestReport> run(List<DiscoveredTest> tests) {
+        runner.printLine(() -> CYAN.format(
+            "Running %d tests in %d worker JVMs", tests.size(), Math.min(numWorkers, tests.size())
+        ));
+        long startTimeNanos = System.nanoTime();
+
+        List<CompletableFuture<TestReport>> reports = new ArrayList<>(tests.size());
+        for (int i = 0; i < tests.size(); i++) {
+            reports.add(new CompletableFuture<>());
+        }
+
+        List<Worker> workers = new ArrayList<>();
+        for (List<Integer> shard : balance(tests)) {
+            if (!shard.isEmpty()) {
+                workers.add(new Worker(tests, shard, reports));
+            }
+        }
+        for (Worker worker : workers) {
+            worker.start();
+        }
+
+        // Print each report as soon as it and every report before it have arrived
+        List<TestReport> finished = new ArrayList<>(tests.size());
+        for (CompletableFuture<TestReport> report : reports) {
+            finished.add(report.join());
+            runner.publish(finished.get(finished.size() - 1));
+        }
+
+        long endTimeNanos = System.nanoTime();
+        if (resultCache != null) {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            for (int i = 0; i < tests.size(); i++) {
+                resultCache.record(
+                    finished.get(i), ResultCache.key(tests.get(i), runner.settings(), classLoader)
+                );
+            }
+            resultCache.save();
+        }
+        printSummary(finished, workers.size(), endTimeNanos - startTimeNanos);
+
+        return finished;
+    }
+
+    /** Splits the indexes of the tests into one shard per worker, longest tests first */
+    private List<List<Integer>> balance(List<DiscoveredTest> tests) {
+        long[] expectedNanos = new long[tests.size()];
+        long knownNanos = 0;
+        int numKnown = 0;
+        for (int i = 0; i < tests.size(); i++) {
+            expectedNanos[i] = resultCache == null
+                ? -1 : resultCache.previousElapsedNanos(tests.get(i).testName());
+            if (expectedNanos[i] >= 0) {
+                knownNanos += expectedNanos[i];
+                numKnown++;
+            }
+        }
+        long averageNanos = numKnown == 0 ? 1 : Math.max(1, knownNanos / numKnown);
+
+        Integer[] order = new Integer[tests.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+            expectedNanos[i] = expectedNanos[i] < 0 ? averageNanos : expectedNanos[i];
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> expectedNanos[i]).reversed());
+
+        List<List<Integer>> shards = new ArrayList<>(numWorkers);
+        long[] shardNanos = new long[numWorkers];
+        for (int i = 0; i < numWorkers; i++) {
+            shards.add(new ArrayList<>());
+        }
+        for (int test : order) {
+            int lightest = 0;
+            for (int i = 1; i < numWorkers; i++) {
+                lightest = shardNanos[i] < shardNanos[lightest] ? i : lightest;
+            }
+            shards.get(lightest).add(test);
+            shardNanos[lightest] += expectedNanos[test];
+        }
+
+        // Within a shard, run the tests in the order they were given, so reports arrive in the
+        // order they are printed in
+        for (List<Integer> shard : shards) {
+            shard.sort(null);
+        }
+        return shards;
+    }
+
+    private void printSummary(List<TestReport> reports, int numJvms, long wallNanos) {
+        int numPassed = 0;
+        long cpuNanos = 0;
+        for (TestReport report : reports) {
+            numPassed += report.didPass() ? 1 : 0;
+            cpuNanos += report.cpuNanos();
+        }
+
+        double wallSeconds = wallNanos / 1_000_000_000.0;
+        double cpuSeconds = cpuNanos / 1_000_000_000.0;
+
+        int numTestsPassed = numPassed;
+        runner.printLine(() -> String.format(
+            "%s in %d worker JVMs in %s wall time (%s CPU time, %s speedup)",
+            (numTestsPassed == reports.size() ? GREEN : RED).format(
+                "Passed %d/%d tests", numTestsPassed, reports.size()
+            ),
+            numJvms,
+            MAGENTA.format("%.3fs", wallSeconds),
+            MAGENTA.format("%.3fs", cpuSeconds),
+            MAGENTA.format("%.2fx", wallSeconds == 0 ? 1 : cpuSeconds / wallSeconds)
+        ));
+    }
+
+    /** One worker JVM, and the thread which reads its reports */
+    private final class Worker extends Thread {
+        private final List<DiscoveredTest> tests;
+        private final List<Integer> shard;
+        private final List<CompletableFuture<TestReport>> reports;
+
+        private Worker(List<DiscoveredTest> tests, List<Integer> shard,
+                       List<CompletableFuture<TestReport>> reports) {
+            this.tests = tests;
+            this.shard = shard;
+            this.reports = reports;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            int numReceived = 0;
+            Process process = null;
+            String problem;
+
+            try {
+                List<String> command = new ArrayList<>();
+                command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+                command.addAll(jvmArgs);
+                command.add("-cp");
+                command.add(System.getProperty("java.class.path"));
+                command.add(ForkedWorker.class.getName());
+
+                process = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+
+                try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(process.getOutputStream())
+                )) {
+                    List<DiscoveredTest> shardTests = new ArrayList<>(shard.size());
+                    for (int index : shard) {
+                        shardTests.add(tests.get(index));
+                    }
+                    out.writeInt(ForkProtocol.magic);
+                    out.writeInt(ForkProtocol.version);
+                    ForkProtocol.writeSettings(out, runner.settings());
+                    ForkProtocol.writeTests(out, shardTests);
+                }
+
+                DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(process.getInputStream())
+                );
+                while (in.readByte() == ForkProtocol.reportMessage) {
+                    reports.get(shard.get(numReceived)).complete(ForkProtocol.readReport(in));
+                    numReceived++;
+                }
+                process.waitFor();
+                problem = numReceived == shard.size()
+                    ? null : "Worker JVM sent too few reports";
+            }
+            catch (EOFException e) {
+                problem = "Worker JVM exited with code " + exitCode(process);
+            }
+            catch (IOException e) {
+                problem = "Could not communicate with worker JVM: " + e.getMessage();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                problem = "Interrupted while waiting for worker JVM";
+            }
+            catch (RuntimeException e) {
+                problem = "Could not read report from worker JVM: " + e;
+            }
+            finally {
+                if (process != null) {
+                    process.destroy();
+                }
+            }
+
+            // Tests which never reported still need a report, or the parent would wait forever
+            for (int i = numReceived; i < shard.size(); i++) {
+                DiscoveredTest test = tests.get(shard.get(i));
+                FailureCollector failures = FailureCollector.keepFirst(1);
+                failures.add(0, TestResult.failure().withMessage(
+                    problem == null ? "Worker JVM did not run the test" : problem
+                ));
+                reports.get(shard.get(i)).complete(new TestReport(
+                    test.testName(), test.numRuns(), 1, failures, 0, 0, "", null, null
+                ));
+            }
+        }
+
+        private String exitCode(Process process) {
+            try {
+                return Integer.toString(process.waitFor());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "unknown";
+            }
+        }
+    }
+}
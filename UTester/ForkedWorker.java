@@ -0,0 +1,67 @@
+package UTester;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The entry point of the worker JVMs started by {@link UTester.ForkedTestRunner}. It reads its
+ * shard of tests from standard input, runs them one at a time, and streams their reports back
+ * on standard output. It is not meant to be started by hand.
+ */
+public final class ForkedWorker {
+    private ForkedWorker() {}
+
+    public static void main(String[] args) throws IOException {
+        // Standard output carries the protocol, so anything else printed to it, such as output
+        // from static initializers, is sent to standard error instead
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(FileDescriptor.out))
+        );
+        System.setOut(System.err);
+        DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(FileDescriptor.in))
+        );
+
+        if (in.readInt() != ForkProtocol.magic || in.readInt() != ForkProtocol.version) {
+            throw new IOException("Unexpected message from parent JVM");
+        }
+        TestRunner runner = new TestRunner(ForkProtocol.readSettings(in));
+        List<DiscoveredTest> tests = ForkProtocol.readTests(in);
+
+        // Failure messages are formatted as reports are written, so they come back styled the
+        // way the parent's runner prints them
+        TerminalStyle.useColor(runner.settings().isColorEnabled());
+        ClassLoader classLoader = ForkedWorker.class.getClassLoader();
+        for (DiscoveredTest test : tests) {
+            TestReport report;
+            try {
+                report = runner.execute(test.testName(), test.numRuns(), test.load(classLoader));
+            }
+            catch (RuntimeException | Error e) {
+                // Report the exception as a failure, so the remaining tests of the shard still run
+                report = crashReport(test, e);
+            }
+            ForkProtocol.writeReport(out, report);
+            // Flushed per test, so the parent can print each report as soon as it is ready
+            out.flush();
+        }
+
+        out.writeByte(ForkProtocol.endMessage);
+        out.flush();
+        // Tests may have left non-daemon threads behind, which must not keep the worker alive
+        System.exit(0);
+    }
+
+    private static TestReport crashReport(DiscoveredTest test, Throwable e) {
+        FailureCollector failures = FailureCollector.keepFirst(1);
+        failures.add(0, TestResult.failure().withMessage("Threw " + e));
+        return new TestReport(test.testName(), test.numRuns(), 1, failures, 0, 0, "", null, null);
+    }
+}
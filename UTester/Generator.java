@@ -0,0 +1,127 @@
+package UTester;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Generates random test inputs which know how to shrink themselves. Generators draw all their
+ * randomness from the given {@link SplittableRandom}, so the same seed always produces the same
+ * input, and each thread can work from its own split of a single root random.
+ */
+@FunctionalInterface
+public interface Generator<T> {
+    Shrinkable<T> generate(SplittableRandom random);
+
+    default <U> Generator<U> map(Function<T, U> function) {
+        return random -> generate(random).map(function);
+    }
+
+    /**
+     * Only generates values satisfying the predicate, by retrying. Use sparingly, since a
+     * predicate which rarely holds makes generation slow.
+     */
+    default Generator<T> filter(Predicate<T> predicate) {
+        return random -> {
+            for (int i = 0; i < 1000; i++) {
+                Shrinkable<T> sample = generate(random);
+                if (predicate.test(sample.value())) {
+                    return sample.filter(predicate);
+                }
+            }
+            throw new IllegalStateException("Could not generate a value satisfying the filter");
+        };
+    }
+
+    static <T> Generator<T> constant(T value) {
+        return random -> Shrinkable.of(value);
+    }
+
+    /** Picks one of the values, shrinking towards the earlier ones */
+    @SafeVarargs
+    static <T> Generator<T> oneOf(T... values) {
+        return ints(0, values.length - 1).map(i -> values[i]);
+    }
+
+    static Generator<Boolean> booleans() {
+        return random -> random.nextBoolean()
+            ? Shrinkable.of(true, () -> List.of(Shrinkable.of(false)))
+            : Shrinkable.of(false);
+    }
+
+    /** Generates ints between min and max inclusive, shrinking towards zero */
+    static Generator<Integer> ints(int min, int max) {
+        int target = Math.max(min, Math.min(max, 0));
+        return random -> shrinkInt((int) random.nextLong(min, (long) max + 1), target);
+    }
+
+    /** Generates doubles between min (inclusive) and max (exclusive), shrinking towards zero */
+    static Generator<Double> doubles(double min, double max) {
+        double target = Math.max(min, Math.min(max, 0));
+        return random -> shrinkDouble(random.nextDouble(min, max), target, 0);
+    }
+
+    static <T> Generator<List<T>> lists(Generator<T> elements, int minSize, int maxSize) {
+        return random -> {
+            int size = random.nextInt(minSize, maxSize + 1);
+            List<Shrinkable<T>> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                values.add(elements.generate(random));
+            }
+            return Shrinkable.list(values, minSize);
+        };
+    }
+
+    static Generator<int[]> intArrays(Generator<Integer> elements, int minLength,
+                                      int maxLength) {
+        return lists(elements, minLength, maxLength).map(
+            list -> list.stream().mapToInt(Integer::intValue).toArray()
+        );
+    }
+
+    static Generator<double[]> doubleArrays(Generator<Double> elements, int minLength,
+                                            int maxLength) {
+        return lists(elements, minLength, maxLength).map(
+            list -> list.stream().mapToDouble(Double::doubleValue).toArray()
+        );
+    }
+
+    /** Builds objects from two generated values, shrinking both of them */
+    static <A, B, R> Generator<R> combine(Generator<A> a, Generator<B> b,
+                                          BiFunction<A, B, R> function) {
+        return random -> Shrinkable.combine(a.generate(random), b.generate(random), function);
+    }
+
+    private static Shrinkable<Integer> shrinkInt(int value, int target) {
+        return Shrinkable.of(value, () -> {
+            // Try the target first, then values ever closer to the original one
+            List<Shrinkable<Integer>> shrinks = new ArrayList<>();
+            for (long distance = (long) value - target; distance != 0; distance /= 2) {
+                shrinks.add(shrinkInt((int) (value - distance), target));
+            }
+            return shrinks;
+        });
+    }
+
+    private static Shrinkable<Double> shrinkDouble(double value, double target, int depth) {
+        return Shrinkable.of(value, () -> {
+            List<Shrinkable<Double>> shrinks = new ArrayList<>();
+            // Halving distances never reaches the target exactly, so give up after a while
+            if (value == target || depth > 64) {
+                return shrinks;
+            }
+            shrinks.add(Shrinkable.of(target));
+            if (Math.rint(value) != value) {
+                shrinks.add(shrinkDouble(Math.rint(value), target, depth + 1));
+            }
+            for (double distance = (value - target) / 2; distance != 0 && shrinks.size() < 8;
+                 distance /= 2) {
+                shrinks.add(shrinkDouble(value - distance, target, depth + 1));
+            }
+            return shrinks;
+        });
+    }
+}
@@ -0,0 +1,80 @@
+package UTester;
+
+import java.util.function.*;
+
+/**
+ * A {@link TestCaseBuilder} specialized for int results, which never boxes the expected or actual
+ * values. Ints widen to longs without loss, so every check is made by a
+ * {@link UTester.LongTestCaseBuilder}, and this class only narrows the values it hands back.
+ */
+public class IntTestCaseBuilder {
+    private final LongTestCaseBuilder builder;
+
+    public IntTestCaseBuilder() {
+        this(new LongTestCaseBuilder());
+    }
+
+    private IntTestCaseBuilder(LongTestCaseBuilder builder) {
+        this.builder = builder;
+    }
+
+    public IntTestCaseBuilder expect(IntSupplier supplier) {
+        return new IntTestCaseBuilder(builder.expect(supplier::getAsInt));
+    }
+
+    public IntTestCaseBuilder expect(int value) {
+        return new IntTestCaseBuilder(builder.expect(value));
+    }
+
+    public IntTestCaseBuilder withFormatter(IntFunction<String> formatter) {
+        return new IntTestCaseBuilder(builder.withFormatter(x -> formatter.apply((int) x)));
+    }
+
+    public IntTestCaseBuilder withInputString(Supplier<String> input) {
+        return new IntTestCaseBuilder(builder.withInputString(input));
+    }
+
+    public IntTestCaseBuilder withInputString(String input) {
+        return new IntTestCaseBuilder(builder.withInputString(input));
+    }
+
+    public TestResult toEqual(int expected) {
+        return builder.toEqual(expected);
+    }
+
+    public TestResult toSatisfy(IntPredicate predicate, IntFunction<String> message) {
+        return builder.toSatisfy(x -> predicate.test((int) x), x -> message.apply((int) x));
+    }
+
+    public TestResult toThrow(Class<Throwable> throwableClass) {
+        return builder.toThrow(throwableClass);
+    }
+
+    public IntTestCaseBuilder1 testing(IntUnaryOperator func) {
+        return new IntTestCaseBuilder1(builder.testing(x -> func.applyAsInt((int) x)));
+    }
+
+    public static class IntTestCaseBuilder1 {
+        private final LongTestCaseBuilder.LongTestCaseBuilder1 builder;
+
+        private IntTestCaseBuilder1(LongTestCaseBuilder.LongTestCaseBuilder1 builder) {
+            this.builder = builder;
+        }
+
+        public IntTestCaseBuilder1 withInputFormatter(IntFunction<String> formatter) {
+            return new IntTestCaseBuilder1(
+                builder.withInputFormatter(x -> formatter.apply((int) x))
+            );
+        }
+
+        public IntTestCaseBuilder1 withOutputFormatter(IntFunction<String> formatter) {
+            return new IntTestCaseBuilder1(
+                builder.withOutputFormatter(x -> formatter.apply((int) x))
+            );
+        }
+
+        public IntTestCaseBuilder withInput(int input) {
+            return new IntTestCaseBuilder(builder.withInput(input));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package UTester;
+
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Writes finished tests as a JUnit XML test suite, which most CI servers can display. Since the
+ * suite is written as tests finish, its totals are not known up front, and are left for the CI
+ * server to count from the test cases.
+ */
+public class JUnitXmlReporter extends ChannelReporter {
+    private final String suiteName;
+
+    public JUnitXmlReporter(Path path, String suiteName) {
+        this(open(path), suiteName);
+    }
+
+    public JUnitXmlReporter(WritableByteChannel channel, String suiteName) {
+        super(channel);
+        this.suiteName = suiteName;
+
+        StringBuilder header = new StringBuilder();
+        header.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<testsuite name=\"");
+        appendEscaped(header, suiteName);
+        header.append("\">\n");
+        write(header);
+        flush();
+    }
+
+    @Override
+    protected void writeReport(TestReport report) {
+        StringBuilder xml = new StringBuilder(256);
+        xml.append("  <testcase classname=\"");
+        appendEscaped(xml, suiteName);
+        xml.append("\" name=\"");
+        appendEscaped(xml, report.testName());
+        xml.append(String.format(
+            Locale.ROOT, "\" time=\"%.6f\">\n", report.elapsedNanos() / 1_000_000_000.0
+        ));
+
+        xml.append("    <properties>\n");
+        appendProperty(xml, "runs", report.numRuns());
+        appendProperty(xml, "runsPlanned", report.numRunsPlanned());
+        appendProperty(xml, "failures", report.numFailures());
+        appendProperty(xml, "cpuNanos", report.cpuNanos());
+        BaselineComparison comparison = report.baselineComparison();
+        if (comparison != null) {
+            appendProperty(xml, "baselineMedianNanos", comparison.baselineMedianNanos());
+            appendProperty(xml, "medianNanos", comparison.medianNanos());
+            xml.append(String.format(
+                Locale.ROOT, "      <property name=\"baselinePValue\" value=\"%.6g\"/>\n",
+                comparison.pValue()
+            ));
+            xml.append("      <property name=\"slowerThanBaseline\" value=\"")
+                .append(comparison.isSlower()).append("\"/>\n");
+            xml.append("      <property name=\"allocatesMoreThanBaseline\" value=\"")
+                .append(comparison.allocatesMore()).append("\"/>\n");
+        }
+        if (report.stopReason() != null) {
+            xml.append("      <property name=\"stopReason\" value=\"");
+            appendEscaped(xml, report.stopReason());
+            xml.append("\"/>\n");
+        }
+        xml.append("    </properties>\n");
+
+        if (!report.didPass()) {
+            xml.append(String.format(
+                "    <failure message=\"Failed %d/%d runs\">", report.numFailures(),
+                report.numRuns()
+            ));
+            for (TestResult.Failure failure : report.failures()) {
+                if (failure.input() != null) {
+                    xml.append("With input ");
+                    appendEscaped(xml, failure.input());
+                    xml.append(": ");
+                }
+                appendEscaped(xml, failure.message());
+                if (failure.seed() != null) {
+                    xml.append(" (run ").append(failure.runIndex())
+                        .append(", seed ").append(failure.seed()).append(')');
+                }
+                xml.append('\n');
+            }
+            xml.append("</failure>\n");
+        }
+
+        if (!report.output().isEmpty()) {
+            xml.append("    <system-out>");
+            appendEscaped(xml, report.output());
+            xml.append("</system-out>\n");
+        }
+
+        xml.append("  </testcase>\n");
+        write(xml);
+    }
+
+    private static void appendProperty(StringBuilder xml, String name, long value) {
+        xml.append("      <property name=\"").append(name).append("\" value=\"").append(value)
+            .append("\"/>\n");
+    }
+
+    private static void appendEscaped(StringBuilder xml, String value) {
+        if (value == null) {
+            return;
+        }
+
+        String text = TerminalStyle.strip(value);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    xml.append("&lt;");
+                    break;
+                case '>':
+                    xml.append("&gt;");
+                    break;
+                case '&':
+                    xml.append("&amp;");
+                    break;
+                case '"':
+                    xml.append("&quot;");
+                    break;
+                default:
+                    // Other control characters are not allowed anywhere in XML 1.0
+                    if (c >= 0x20 || c == '\n' || c == '\r' || c == '\t') {
+                        xml.append(c);
+                    }
+            }
+        }
+    }
+
+    @Override
+    protected void writeEnd() {
+        write("</testsuite>\n");
+    }
+}
@@ -0,0 +1,111 @@
+package UTester;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publishes the metrics of every test as an MBean named
+ * {@code UTester:type=Test,name="<test name>"}. When a test runs again, its MBean is updated
+ * rather than registered again.
+ */
+public class JmxMetricsListener implements MetricsListener {
+    private final MBeanServer server;
+    private final Map<String, Bean> beans = new ConcurrentHashMap<>();
+
+    public JmxMetricsListener() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxMetricsListener(MBeanServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public void testMeasured(String testName, TestMetrics metrics) {
+        beans.computeIfAbsent(testName, name -> register(name, metrics)).metrics = metrics;
+    }
+
+    private Bean register(String testName, TestMetrics metrics) {
+        Bean bean = new Bean(metrics);
+        try {
+            ObjectName name = new ObjectName(
+                "UTester:type=Test,name=" + ObjectName.quote(testName)
+            );
+            try {
+                server.registerMBean(bean, name);
+            }
+            catch (InstanceAlreadyExistsException e) {
+                // Left behind by another listener, which no longer receives the test's metrics
+                server.unregisterMBean(name);
+                server.registerMBean(bean, name);
+            }
+        }
+        catch (JMException e) {
+            throw new IllegalStateException("Could not register MBean for " + testName, e);
+        }
+        return bean;
+    }
+
+    private static final class Bean implements TestMetricsMXBean {
+        private volatile TestMetrics metrics;
+
+        private Bean(TestMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public long getRunCount() {
+            return metrics.runDurations().count();
+        }
+
+        @Override
+        public double getMeanRunNanos() {
+            return metrics.runDurations().meanNanos();
+        }
+
+        @Override
+        public long getMedianRunNanos() {
+            return metrics.runDurations().percentileNanos(50);
+        }
+
+        @Override
+        public long getP99RunNanos() {
+            return metrics.runDurations().percentileNanos(99);
+        }
+
+        @Override
+        public long getMaxRunNanos() {
+            return metrics.runDurations().maxNanos();
+        }
+
+        @Override
+        public long getAllocatedBytes() {
+            return metrics.allocatedBytes();
+        }
+
+        @Override
+        public long getGcCount() {
+            return metrics.gcCount();
+        }
+
+        @Override
+        public long getGcTimeMillis() {
+            return metrics.gcTimeMillis();
+        }
+
+        @Override
+        public long getCpuNanos() {
+            return metrics.cpuNanos();
+        }
+
+        @Override
+        public long getElapsedNanos() {
+            return metrics.elapsedNanos();
+        }
+    }
+}
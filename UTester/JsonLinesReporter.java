@@ -0,0 +1,110 @@
+package UTester;
+
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * Writes one JSON object per line for every finished test, for example
+ * <pre>
+ * {"test":"Vector.zero(3)","passed":true,"runs":1,"failures":0,"elapsedNanos":1200,...}
+ * </pre>
+ * Failure messages and inputs are written without terminal colors.
+ */
+public class JsonLinesReporter extends ChannelReporter {
+    public JsonLinesReporter(Path path) {
+        this(open(path));
+    }
+
+    public JsonLinesReporter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    protected void writeReport(TestReport report) {
+        StringBuilder line = new StringBuilder(128);
+        line.append("{\"test\":");
+        appendString(line, report.testName());
+        line.append(",\"passed\":").append(report.didPass());
+        line.append(",\"runs\":").append(report.numRuns());
+        line.append(",\"runsPlanned\":").append(report.numRunsPlanned());
+        line.append(",\"failures\":").append(report.numFailures());
+        line.append(",\"elapsedNanos\":").append(report.elapsedNanos());
+        line.append(",\"cpuNanos\":").append(report.cpuNanos());
+        TestMetrics metrics = report.metrics();
+        if (metrics != null) {
+            line.append(",\"medianRunNanos\":")
+                .append(metrics.runDurations().percentileNanos(50));
+            line.append(",\"p99RunNanos\":").append(metrics.runDurations().percentileNanos(99));
+            line.append(",\"maxRunNanos\":").append(metrics.runDurations().maxNanos());
+            line.append(",\"allocatedBytes\":").append(metrics.allocatedBytes());
+            line.append(",\"gcCount\":").append(metrics.gcCount());
+            line.append(",\"gcTimeMillis\":").append(metrics.gcTimeMillis());
+        }
+        BaselineComparison comparison = report.baselineComparison();
+        if (comparison != null) {
+            line.append(",\"baseline\":{\"medianNanos\":")
+                .append(comparison.baselineMedianNanos());
+            line.append(",\"medianRatio\":").append(comparison.medianRatio());
+            line.append(",\"pValue\":").append(comparison.pValue());
+            line.append(",\"bytesPerRun\":").append(comparison.baselineBytesPerRun());
+            line.append(",\"slower\":").append(comparison.isSlower());
+            line.append(",\"allocatesMore\":").append(comparison.allocatesMore()).append('}');
+        }
+        line.append(",\"stopReason\":");
+        appendString(line, report.stopReason());
+        line.append(",\"failureDetails\":[");
+        for (int i = 0; i < report.failures().size(); i++) {
+            TestResult.Failure failure = report.failures().get(i);
+            line.append(i == 0 ? "{" : ",{").append("\"message\":");
+            appendString(line, failure.message());
+            line.append(",\"input\":");
+            appendString(line, failure.input());
+            line.append(",\"timeout\":").append(failure.isTimeout());
+            line.append(",\"run\":").append(failure.runIndex());
+            line.append(",\"seed\":").append(failure.seed());
+            line.append('}');
+        }
+        line.append("],\"output\":");
+        appendString(line, report.output());
+        line.append("}\n");
+        write(line);
+    }
+
+    static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+
+        json.append('"');
+        String text = TerminalStyle.strip(value);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,146 @@
+package UTester;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Counts run durations in logarithmic buckets, in the style of HdrHistogram. Each power of two is
+ * split into 64 linear sub-buckets, so any recorded duration is known to within about 1.6%
+ * while the whole range from a nanosecond to several hours fits in a few thousand counters.
+ * <p>
+ * Recording is not synchronized. Every worker records into a histogram of its own, and the
+ * histograms are merged once the workers have finished, so there is never any contention.
+ */
+public final class LatencyHistogram {
+    private static final int subBucketBits = 6;
+    private static final int subBucketCount = 1 << subBucketBits;
+    // Durations of 2^45ns, about 9.8 hours, or more all land in the last bucket
+    private static final int maxMagnitude = 44;
+
+    private final long[] counts = new long[(maxMagnitude - subBucketBits + 2) * subBucketCount];
+    private long count = 0;
+    private long sum = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    void merge(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /** Writes only the buckets which are in use, since most of them usually are not */
+    void write(DataOutput out) throws IOException {
+        out.writeLong(count);
+        out.writeLong(sum);
+        out.writeLong(min);
+        out.writeLong(max);
+
+        int numUsed = 0;
+        for (long bucketCount : counts) {
+            numUsed += bucketCount == 0 ? 0 : 1;
+        }
+        out.writeInt(numUsed);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                out.writeShort(i);
+                out.writeLong(counts[i]);
+            }
+        }
+    }
+
+    static LatencyHistogram read(DataInput in) throws IOException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.count = in.readLong();
+        histogram.sum = in.readLong();
+        histogram.min = in.readLong();
+        histogram.max = in.readLong();
+
+        int numUsed = in.readInt();
+        for (int i = 0; i < numUsed; i++) {
+            histogram.counts[in.readUnsignedShort()] = in.readLong();
+        }
+        return histogram;
+    }
+
+    int numBuckets() {
+        return counts.length;
+    }
+
+    long bucketCount(int bucket) {
+        return counts[bucket];
+    }
+
+    /** The number of recorded durations */
+    public long count() {
+        return count;
+    }
+
+    public long minNanos() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long maxNanos() {
+        return max;
+    }
+
+    public double meanNanos() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * The duration which the given percentage of recorded durations did not exceed, for example
+     * percentileNanos(99) for the 99th percentile
+     */
+    public long percentileNanos(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, percentile) / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // Report the middle of the bucket, but never beyond what was actually recorded
+                long middle = lowestValueOf(i) + (lowestValueOf(i + 1) - lowestValueOf(i)) / 2;
+                return Math.max(minNanos(), Math.min(max, middle));
+            }
+        }
+        return max;
+    }
+
+    private static int bucketOf(long value) {
+        if (value < subBucketCount) {
+            return (int) value;
+        }
+        int magnitude = Math.min(maxMagnitude, 63 - Long.numberOfLeadingZeros(value));
+        long top = Math.min(
+            2 * subBucketCount - 1, value >>> (magnitude - subBucketBits)
+        );
+        return (magnitude - subBucketBits + 1) * subBucketCount + (int) (top - subBucketCount);
+    }
+
+    private static long lowestValueOf(int bucket) {
+        if (bucket < subBucketCount) {
+            return bucket;
+        }
+        int magnitude = bucket / subBucketCount + subBucketBits - 1;
+        long top = bucket % subBucketCount + subBucketCount;
+        return top << (magnitude - subBucketBits);
+    }
+}
@@ -0,0 +1,133 @@
+package UTester;
+
+import java.util.function.*;
+
+import static UTester.TerminalStyle.CYAN;
+import static UTester.TerminalStyle.RED;
+
+/**
+ * A {@link TestCaseBuilder} specialized for long results, which never boxes the expected or actual
+ * values.
+ */
+public class LongTestCaseBuilder {
+    private final LongSupplier supplier;
+    private final LongFunction<String> formatter;
+    private final Supplier<String> input;
+
+    public LongTestCaseBuilder() {
+        this(null, Long::toString, null);
+    }
+
+    private LongTestCaseBuilder(LongSupplier supplier, LongFunction<String> formatter,
+                                Supplier<String> input) {
+        this.supplier = supplier;
+        this.formatter = formatter;
+        this.input = input;
+    }
+
+    public LongTestCaseBuilder expect(LongSupplier supplier) {
+        return new LongTestCaseBuilder(supplier, formatter, input);
+    }
+
+    public LongTestCaseBuilder expect(long value) {
+        return expect(() -> value);
+    }
+
+    public LongTestCaseBuilder withFormatter(LongFunction<String> formatter) {
+        return new LongTestCaseBuilder(supplier, formatter, input);
+    }
+
+    public LongTestCaseBuilder withInputString(Supplier<String> input) {
+        return new LongTestCaseBuilder(supplier, formatter, input);
+    }
+
+    public LongTestCaseBuilder withInputString(String input) {
+        return withInputString(() -> input);
+    }
+
+    public TestResult toEqual(long expected) {
+        try {
+            long actualValue = supplier.getAsLong();
+            if (actualValue == expected) {
+                return TestResult.success();
+            }
+            return mismatch(expected, actualValue);
+        }
+        catch (Throwable e) {
+            return failure(e::getMessage);
+        }
+    }
+
+    public TestResult toSatisfy(LongPredicate predicate, LongFunction<String> message) {
+        try {
+            long actualValue = supplier.getAsLong();
+            if (predicate.test(actualValue)) {
+                return TestResult.success();
+            }
+            return failure(() -> message.apply(actualValue));
+        }
+        catch (Throwable e) {
+            return failure(e::getMessage);
+        }
+    }
+
+    public TestResult toThrow(Class<Throwable> throwableClass) {
+        try {
+            long actualValue = supplier.getAsLong();
+            return failure(() -> String.format(
+                "Expected to throw %s, instead got %s",
+                CYAN.format(throwableClass.getSimpleName()),
+                CYAN.format(formatter.apply(actualValue))
+            ));
+        }
+        catch (Throwable e) {
+            return throwableClass.isInstance(e) ? TestResult.success() : failure(e::getMessage);
+        }
+    }
+
+    public LongTestCaseBuilder1 testing(LongUnaryOperator func) {
+        return new LongTestCaseBuilder1(func, input == null ? null : x -> input.get(), formatter);
+    }
+
+    private TestResult.Failure mismatch(long expected, long actual) {
+        return failure(() -> RED.format(
+            "Expected %s, instead got %s",
+            CYAN.format(formatter.apply(expected)),
+            CYAN.format(formatter.apply(actual))
+        ));
+    }
+
+    private TestResult.Failure failure(Supplier<String> message) {
+        return TestResult.failure().withLazyMessage(message).withLazyInput(input);
+    }
+
+    public static class LongTestCaseBuilder1 {
+        private final LongUnaryOperator function;
+        private final LongFunction<String> inputFormatter;
+        private final LongFunction<String> outputFormatter;
+
+        private LongTestCaseBuilder1(LongUnaryOperator function,
+                                     LongFunction<String> inputFormatter,
+                                     LongFunction<String> outputFormatter) {
+            this.function = function;
+            this.inputFormatter = inputFormatter;
+            this.outputFormatter = outputFormatter;
+        }
+
+        public LongTestCaseBuilder1 withInputFormatter(LongFunction<String> formatter) {
+            return new LongTestCaseBuilder1(function, formatter, outputFormatter);
+        }
+
+        public LongTestCaseBuilder1 withOutputFormatter(LongFunction<String> formatter) {
+            return new LongTestCaseBuilder1(function, inputFormatter, formatter);
+        }
+
+        public LongTestCaseBuilder withInput(long input) {
+            return new LongTestCaseBuilder(
+                () -> function.applyAsLong(input),
+                outputFormatter,
+                inputFormatter == null ? null : () -> inputFormatter.apply(input)
+            );
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package UTester;
+
+/** Receives the {@link UTester.TestMetrics} of every test run by a {@link UTester.TestRunner} */
+@FunctionalInterface
+public interface MetricsListener {
+    void testMeasured(String testName, TestMetrics metrics);
+}
@@ -0,0 +1,160 @@
+package UTester;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Collects everything a test prints to System.out and System.err, so that it can be shown with
+ * the test's report instead of being mixed in with other output.
+ * <p>
+ * System.out and System.err are replaced once by streams which look up the capture bound to the
+ * current thread. Threads without a capture print to the original streams as usual. Threads
+ * created while a test runs inherit its capture, and keep it after the test, so a capture which
+ * has finished passes output on to the original streams. Pooled threads which already existed
+ * must bind the test's capture themselves, see {@link #bound(Callable)}.
+ */
+final class OutputCapture {
+    // Buffers which grew past this are dropped instead of pooled, so one noisy test does not pin
+    // a huge array for the rest of the run
+    private static final int maxPooledBufferSize = 1 << 20;
+
+    private static final InheritableThreadLocal<OutputCapture> current =
+        new InheritableThreadLocal<>();
+    private static final Queue<ByteArrayOutputStream> pool = new ConcurrentLinkedQueue<>();
+    private static final Charset charset = Charset.defaultCharset();
+    private static boolean isInstalled = false;
+
+    private final ByteArrayOutputStream buffer;
+    // Guarded by buffer. Abandoned runs and threads which inherited the capture may keep printing
+    // after it is finished, and must not write into a buffer which has gone back to the pool
+    private boolean isFinished = false;
+
+    private OutputCapture(ByteArrayOutputStream buffer) {
+        this.buffer = buffer;
+    }
+
+    static OutputCapture start() {
+        install();
+        ByteArrayOutputStream buffer = pool.poll();
+        return new OutputCapture(buffer == null ? new ByteArrayOutputStream(256) : buffer);
+    }
+
+    private static synchronized void install() {
+        if (isInstalled) {
+            return;
+        }
+        isInstalled = true;
+        System.setOut(new PrintStream(new RoutingStream(System.out), true, charset));
+        System.setErr(new PrintStream(new RoutingStream(System.err), true, charset));
+    }
+
+    /** Routes output of the current thread to this capture, returning the previous capture */
+    OutputCapture bind() {
+        OutputCapture previous = current.get();
+        current.set(this);
+        return previous;
+    }
+
+    static void restore(OutputCapture previous) {
+        if (previous == null) {
+            current.remove();
+        }
+        else {
+            current.set(previous);
+        }
+    }
+
+    /** Wraps a task so that whichever thread runs it prints into this capture */
+    <T> Callable<T> bound(Callable<T> task) {
+        return () -> {
+            OutputCapture previous = bind();
+            try {
+                return task.call();
+            }
+            finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /** Returns everything printed into this capture, which must not be used afterwards */
+    String finish() {
+        String output;
+        synchronized (buffer) {
+            isFinished = true;
+            output = new String(buffer.toByteArray(), charset);
+            if (buffer.size() <= maxPooledBufferSize) {
+                buffer.reset();
+                pool.offer(buffer);
+            }
+        }
+        return output;
+    }
+
+    /** Captures a byte, and returns false if the capture has finished and it was not taken */
+    private boolean write(int b) {
+        synchronized (buffer) {
+            if (isFinished) {
+                return false;
+            }
+            buffer.write(b);
+            return true;
+        }
+    }
+
+    private boolean write(byte[] bytes, int offset, int length) {
+        synchronized (buffer) {
+            if (isFinished) {
+                return false;
+            }
+            buffer.write(bytes, offset, length);
+            return true;
+        }
+    }
+
+    private static final class RoutingStream extends OutputStream {
+        private final PrintStream original;
+
+        private RoutingStream(PrintStream original) {
+            this.original = original;
+        }
+
+        @Override
+        public void write(int b) {
+            OutputCapture capture = current.get();
+            if (capture == null || !capture.write(b)) {
+                forget(capture);
+                original.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            OutputCapture capture = current.get();
+            if (capture == null || !capture.write(bytes, offset, length)) {
+                forget(capture);
+                original.write(bytes, offset, length);
+            }
+        }
+
+        /**
+         * Drops the finished capture of a test which the current thread still holds, such as a
+         * timer or pool thread created during the test, so it prints as usual from now on
+         */
+        private static void forget(OutputCapture finished) {
+            if (finished != null) {
+                current.remove();
+            }
+        }
+
+        @Override
+        public void flush() {
+            original.flush();
+        }
+    }
+}
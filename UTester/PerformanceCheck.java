@@ -0,0 +1,118 @@
+package UTester;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * The measurements behind the performance assertions of {@link UTester.TestCaseBuilder}. They
+ * all warm the code up before measuring it, so that the JIT has compiled it, and feed results to
+ * a {@link UTester.Blackhole} so that the work cannot be optimized away.
+ */
+final class PerformanceCheck {
+    // Warming up stops after whichever limit is reached first. Ten thousand calls is enough for
+    // the JIT to fully compile most code, and slow code is compiled sooner.
+    private static final int warmupCalls = 10_000;
+    private static final long maxWarmupNanos = 200_000_000;
+    // Each timed iteration runs for at least this long, so the clock's overhead is negligible
+    private static final long minIterationNanos = 200_000;
+    private static final int warmupIterations = 3;
+    private static final int measurementIterations = 9;
+    // Allocation is measured over many calls, but without spending long on slow code
+    private static final int maxAllocationCalls = 10_000;
+    private static final long maxAllocationNanos = 100_000_000;
+
+    private PerformanceCheck() {}
+
+    /** The median time one call takes, in nanoseconds */
+    static double medianNanosPerCall(Supplier<?> supplier) {
+        Blackhole blackhole = new Blackhole();
+        warmUp(supplier, blackhole);
+
+        // Find how many calls fill an iteration
+        int callsPerIteration = 1;
+        while (time(supplier, callsPerIteration, blackhole) < minIterationNanos
+            && callsPerIteration < (1 << 24)) {
+            callsPerIteration *= 2;
+        }
+
+        for (int i = 0; i < warmupIterations; i++) {
+            time(supplier, callsPerIteration, blackhole);
+        }
+
+        double[] samples = new double[measurementIterations];
+        for (int i = 0; i < measurementIterations; i++) {
+            samples[i] = (double) time(supplier, callsPerIteration, blackhole) / callsPerIteration;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    private static void warmUp(Supplier<?> supplier, Blackhole blackhole) {
+        long deadline = System.nanoTime() + maxWarmupNanos;
+        for (int i = 0; i < warmupCalls && System.nanoTime() < deadline; i++) {
+            blackhole.consume(supplier.get());
+        }
+    }
+
+    private static long time(Supplier<?> supplier, int numCalls, Blackhole blackhole) {
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < numCalls; i++) {
+            blackhole.consume(supplier.get());
+        }
+        return System.nanoTime() - startNanos;
+    }
+
+    /** The average number of bytes one call allocates, or -1 if the JVM cannot tell */
+    static double allocatedBytesPerCall(Supplier<?> supplier) {
+        if (TestFramework.currentThreadAllocatedBytes() < 0) {
+            return -1;
+        }
+        Blackhole blackhole = new Blackhole();
+
+        // Warm up first, so that allocations the JIT removes by escape analysis are not counted
+        warmUp(supplier, blackhole);
+
+        long startBytes = TestFramework.currentThreadAllocatedBytes();
+        int numCalls = callRepeatedly(supplier, blackhole);
+        long endBytes = TestFramework.currentThreadAllocatedBytes();
+        return (double) (endBytes - startBytes) / numCalls;
+    }
+
+    private static int callRepeatedly(Supplier<?> supplier, Blackhole blackhole) {
+        long deadline = System.nanoTime() + maxAllocationNanos;
+        int numCalls = 0;
+        while (numCalls < maxAllocationCalls && System.nanoTime() < deadline) {
+            blackhole.consume(supplier.get());
+            numCalls++;
+        }
+        return numCalls;
+    }
+
+    /**
+     * Times the workloads of doubling sizes between minSize and maxSize, and fits a power law
+     * to the times. Returns the fitted exponent, followed by the median time per call at each
+     * size.
+     */
+    static double[] fitScaling(IntFunction<? extends Supplier<?>> workload, int[] sizes) {
+        double[] result = new double[sizes.length + 1];
+        double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            // Setting up the workload is not part of what is timed
+            double nanos = Math.max(1, medianNanosPerCall(workload.apply(sizes[i])));
+            result[i + 1] = nanos;
+
+            double x = Math.log(sizes[i]);
+            double y = Math.log(nanos);
+            sumX += x;
+            sumY += y;
+            sumXX += x * x;
+            sumXY += x * y;
+        }
+
+        // Least squares slope of log time against log size
+        int n = sizes.length;
+        result[0] = (n * sumXY - sumX * sumY) / (n * sumXX - sumX * sumX);
+        return result;
+    }
+}
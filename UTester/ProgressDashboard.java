@@ -0,0 +1,189 @@
+package UTester;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+import static UTester.TerminalStyle.*;
+
+/**
+ * Shows the progress of running tests while they run: runs completed, runs per second, failures
+ * so far and the estimated time left. A runner reports to a dashboard given to
+ * {@link UTester.TestRunner#showProgress(ProgressDashboard)}:
+ * <pre>
+ * try (ProgressDashboard dashboard = ProgressDashboard.start()) {
+ *     runner.showProgress(dashboard);
+ *     ...
+ * }
+ * </pre>
+ * A low priority daemon thread samples the counters of each running test at a fixed frame rate,
+ * and redraws one line per test in place. Test threads only bump counters of their own, so
+ * showing progress costs them close to nothing. Without a terminal which understands escape
+ * codes, a plain line is printed every few seconds instead.
+ */
+public final class ProgressDashboard implements AutoCloseable {
+    // Without in place updates, only print a line this often, so logs are not flooded
+    private static final long plainIntervalNanos = 5_000_000_000L;
+    // Weight of the latest frame in the smoothed rate, which keeps the ETA from jumping around
+    private static final double rateSmoothing = 0.3;
+
+    private final PrintStream output;
+    private final long frameNanos;
+    private final List<TestProgress> running = new CopyOnWriteArrayList<>();
+    private final Thread renderer;
+    private volatile boolean isClosed = false;
+
+    // Guarded by this
+    private int numLinesDrawn = 0;
+    private long lastPlainNanos = System.nanoTime();
+
+    private ProgressDashboard(PrintStream output, Duration frameInterval) {
+        this.output = output;
+        this.frameNanos = frameInterval.toNanos();
+        this.renderer = new Thread(this::render, "utester-progress");
+        renderer.setDaemon(true);
+        renderer.setPriority(Thread.MIN_PRIORITY);
+    }
+
+    /** Starts a dashboard which draws to System.out ten times a second */
+    public static ProgressDashboard start() {
+        return start(System.out, Duration.ofMillis(100));
+    }
+
+    public static ProgressDashboard start(PrintStream output, Duration frameInterval) {
+        if (frameInterval.isZero() || frameInterval.isNegative()) {
+            throw new IllegalArgumentException("Frame interval must be positive");
+        }
+        ProgressDashboard dashboard = new ProgressDashboard(output, frameInterval);
+        dashboard.renderer.start();
+        return dashboard;
+    }
+
+    /** Stops drawing and erases the progress lines */
+    @Override
+    public void close() {
+        isClosed = true;
+        renderer.interrupt();
+        synchronized (this) {
+            erase();
+            output.flush();
+        }
+    }
+
+    TestProgress testStarted(String testName, int numRuns, int numSlots,
+                             boolean isColorEnabled) {
+        TestProgress progress = new TestProgress(testName, numRuns, numSlots, isColorEnabled);
+        running.add(progress);
+        return progress;
+    }
+
+    void testFinished(TestProgress progress) {
+        running.remove(progress);
+    }
+
+    /** Prints text above the progress lines, which are drawn again on the next frame */
+    synchronized void printAbove(Runnable print) {
+        erase();
+        print.run();
+    }
+
+    private void render() {
+        // The thread may inherit the capture of a running test, and must print to the terminal
+        OutputCapture.restore(null);
+        while (!isClosed) {
+            LockSupport.parkNanos(frameNanos);
+            if (!isClosed) {
+                drawFrame();
+            }
+        }
+    }
+
+    private synchronized void drawFrame() {
+        // Checked again under the lock, so no frame is drawn after close has erased the last one
+        if (isClosed) {
+            return;
+        }
+        long now = System.nanoTime();
+        boolean isInPlace = isInPlace();
+        if (!isInPlace && now - lastPlainNanos < plainIntervalNanos) {
+            return;
+        }
+        lastPlainNanos = now;
+        if (running.isEmpty()) {
+            erase();
+            return;
+        }
+
+        StringBuilder frame = new StringBuilder();
+        int numLines = 0;
+        boolean wasColorEnabled = TerminalStyle.useColor(isInPlace);
+        try {
+            for (TestProgress progress : running) {
+                frame.append(formatLine(progress, now)).append(System.lineSeparator());
+                numLines++;
+            }
+        }
+        finally {
+            TerminalStyle.useColor(wasColorEnabled);
+        }
+        if (isInPlace) {
+            erase();
+        }
+        output.print(frame);
+        output.flush();
+        numLinesDrawn = isInPlace ? numLines : 0;
+    }
+
+    /**
+     * Returns whether lines can be redrawn in place, which needs a terminal, and color turned on
+     * for every runner with a running test. Logs and files get plain lines instead.
+     */
+    private boolean isInPlace() {
+        if (System.console() == null || !isPrettyTerminalEnabled()) {
+            return false;
+        }
+        for (TestProgress progress : running) {
+            if (!progress.isColorEnabled()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String formatLine(TestProgress progress, long now) {
+        long runsCompleted = progress.runsCompleted();
+        long failures = progress.failures();
+        int numRunsPlanned = progress.numRunsPlanned();
+
+        double seconds = (now - progress.lastSampleNanos) / 1e9;
+        if (seconds > 0) {
+            double latestRate = (runsCompleted - progress.lastRunsCompleted) / seconds;
+            progress.runsPerSecond = progress.lastRunsCompleted == 0 ? latestRate
+                : rateSmoothing * latestRate + (1 - rateSmoothing) * progress.runsPerSecond;
+            progress.lastRunsCompleted = runsCompleted;
+            progress.lastSampleNanos = now;
+        }
+
+        double rate = progress.runsPerSecond;
+        String eta = rate <= 0 ? "?"
+            : BenchmarkReport.formatNanos((numRunsPlanned - runsCompleted) / rate * 1e9);
+        String failureInfo = failures == 0 ? ""
+            : "  " + RED.format("%s failures", failures);
+
+        return String.format(
+            "%s %s  %s/%s runs  %s runs/s%s  ETA %s",
+            CYAN.format("Running"), progress.testName(),
+            MAGENTA.format(Long.toString(runsCompleted)), numRunsPlanned,
+            MAGENTA.format(String.format("%.0f", rate)), failureInfo, MAGENTA.format(eta)
+        );
+    }
+
+    private void erase() {
+        if (numLinesDrawn > 0) {
+            output.print(TerminalStyle.eraseLinesAbove(numLinesDrawn));
+            numLinesDrawn = 0;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package UTester;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+/**
+ * A test which checks a randomly generated input on every run. When a run fails, the input is
+ * shrunk to the simplest input which still fails, and that failure is reported instead.
+ * <p>
+ * Inputs are drawn from the {@link UTester.TestRandom} of each run, so a failing run can be
+ * replayed from the seed it reports. A property given its own seed with {@link #withSeed(long)}
+ * instead draws from a split of that seed on each thread running it.
+ */
+public final class Property<T> implements Test {
+    private static final int maxShrinkAttempts = 1000;
+
+    private final Generator<T> generator;
+    private final Function<T, TestResult> check;
+    private final SplittableRandom root;
+    private final ThreadLocal<SplittableRandom> random;
+
+    private Property(Generator<T> generator, Function<T, TestResult> check, Long seed) {
+        this.generator = generator;
+        this.check = check;
+        this.root = seed == null ? null : new SplittableRandom(seed);
+        this.random = seed == null ? null : ThreadLocal.withInitial(() -> {
+            synchronized (root) {
+                return root.split();
+            }
+        });
+    }
+
+    public static <T> Property<T> forAll(Generator<T> generator, Function<T, TestResult> check) {
+        return new Property<>(generator, check, null);
+    }
+
+    public Property<T> withSeed(long seed) {
+        return new Property<>(generator, check, seed);
+    }
+
+    @Override
+    public TestResult run() {
+        Shrinkable<T> input = generator.generate(
+            random == null ? TestRandom.current() : random.get()
+        );
+        TestResult result = check.apply(input.value());
+        return result.didPass() ? result : shrink(input, result.asFailure());
+    }
+
+    private TestResult.Failure shrink(Shrinkable<T> input, TestResult.Failure failure) {
+        int numAttempts = 0;
+        int numShrinks = 0;
+
+        // Greedily move to the first simpler input which still fails, until none do
+        search:
+        while (numAttempts < maxShrinkAttempts) {
+            for (Shrinkable<T> candidate : input.shrinks()) {
+                if (++numAttempts > maxShrinkAttempts) {
+                    break search;
+                }
+
+                TestResult result = check.apply(candidate.value());
+                if (!result.didPass()) {
+                    input = candidate;
+                    failure = result.asFailure();
+                    numShrinks++;
+                    continue search;
+                }
+            }
+            break;
+        }
+
+        if (numShrinks == 0) {
+            return failure;
+        }
+
+        TestResult.Failure minimalFailure = failure;
+        int finalNumShrinks = numShrinks;
+        return TestResult
+            .failure()
+            .withLazyMessage(() -> String.format(
+                "%s (shrunk %d times)", minimalFailure.message(), finalNumShrinks
+            ))
+            .withLazyInput(minimalFailure::input);
+    }
+
+    /** Formats generated inputs, including arrays, for failure messages */
+    static String format(Object value) {
+        String formatted = Arrays.deepToString(new Object[] {value});
+        return formatted.substring(1, formatted.length() - 1);
+    }
+}
@@ -0,0 +1,259 @@
+package UTester;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which tests passed in earlier runs, so unchanged passing tests can be skipped. A
+ * test is unchanged if its name, the bytecode of the class defining it and the settings it is
+ * run with are all the same as last time.
+ * <p>
+ * The cache file is a header followed by fixed size records sorted by the hash of the test name.
+ * It is memory-mapped and searched in place, so opening a cache with thousands of tests reads
+ * only the pages that are actually looked up. Only the test's own class is hashed, so tests
+ * whose code under test lives elsewhere should list it with
+ * {@link TestGroup#add(String, int, Test, Class[])}.
+ */
+public final class ResultCache {
+    private static final int magic = 0x55545243; // "UTRC"
+    private static final int version = 1;
+    private static final int headerSize = 12;
+    // nameHash (8), key (8), elapsedNanos (8), passed (1), padding (7)
+    private static final int recordSize = 32;
+
+    private final Path path;
+    private final ByteBuffer records;
+    private final int numRecords;
+    private final Map<Long, Record> updates = new ConcurrentHashMap<>();
+
+    private ResultCache(Path path, ByteBuffer records, int numRecords) {
+        this.path = path;
+        this.records = records;
+        this.numRecords = numRecords;
+    }
+
+    /** Opens the cache stored at path, or an empty cache if there is no valid file there */
+    public static ResultCache open(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return new ResultCache(path, ByteBuffer.allocate(0), 0);
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.capacity() < headerSize || mapped.getInt(0) != magic
+                || mapped.getInt(4) != version) {
+                // An unreadable cache only costs us a full run, so start over
+                return new ResultCache(path, ByteBuffer.allocate(0), 0);
+            }
+
+            int numRecords = Math.min(
+                mapped.getInt(8), (mapped.capacity() - headerSize) / recordSize
+            );
+            return new ResultCache(path, mapped, numRecords);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Whether the test passed the last time it was run with this key */
+    boolean passedBefore(String testName, long key) {
+        Record record = find(hash(testName));
+        return record != null && record.passed && record.key == key;
+    }
+
+    /** Whether the test failed the last time it was run, whatever its key was */
+    boolean failedBefore(String testName) {
+        Record record = find(hash(testName));
+        return record != null && !record.passed;
+    }
+
+    /** How long the test took the last time it was run, or -1 if it was never run */
+    long previousElapsedNanos(String testName) {
+        Record record = find(hash(testName));
+        return record == null ? -1 : record.elapsedNanos;
+    }
+
+    void record(TestReport report, long key) {
+        updates.put(
+            hash(report.testName()),
+            new Record(key, report.elapsedNanos(), report.didPass())
+        );
+    }
+
+    private Record find(long nameHash) {
+        Record updated = updates.get(nameHash);
+        if (updated != null) {
+            return updated;
+        }
+
+        int low = 0;
+        int high = numRecords - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = headerSize + middle * recordSize;
+            long middleHash = records.getLong(offset);
+            if (middleHash < nameHash) {
+                low = middle + 1;
+            }
+            else if (middleHash > nameHash) {
+                high = middle - 1;
+            }
+            else {
+                return new Record(
+                    records.getLong(offset + 8),
+                    records.getLong(offset + 16),
+                    records.get(offset + 24) != 0
+                );
+            }
+        }
+        return null;
+    }
+
+    /** Writes the cache back to its file, including everything recorded since it was opened */
+    public synchronized void save() {
+        TreeMap<Long, Record> merged = new TreeMap<>();
+        for (int i = 0; i < numRecords; i++) {
+            int offset = headerSize + i * recordSize;
+            merged.put(records.getLong(offset), new Record(
+                records.getLong(offset + 8),
+                records.getLong(offset + 16),
+                records.get(offset + 24) != 0
+            ));
+        }
+        merged.putAll(updates);
+
+        ByteBuffer buffer = ByteBuffer.allocate(headerSize + merged.size() * recordSize);
+        buffer.putInt(magic).putInt(version).putInt(merged.size());
+        for (Map.Entry<Long, Record> entry : merged.entrySet()) {
+            Record record = entry.getValue();
+            buffer.putLong(entry.getKey()).putLong(record.key).putLong(record.elapsedNanos)
+                .put((byte) (record.passed ? 1 : 0)).put(new byte[recordSize - 25]);
+        }
+        buffer.flip();
+
+        // Write to a temporary file first, so a crash never leaves a half written cache
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            Path temporary = Files.createTempFile(parent, ".utester", ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(
+                temporary, path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE
+            );
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Computes the key for a test, from the bytecode of the class defining it, the classes it
+     * depends on and the settings which affect its result.
+     */
+    static long key(Test test, int numRuns, TestSettings settings, Class<?>... dependencies) {
+        // A fixed seed changes the inputs drawn from TestRandom, and so the result
+        long key = hash(numRuns + "|" + settings.timeout() + "|" + settings.testTimeout() + "|"
+            + settings.maxFailures() + "|" + settings.seed());
+        key = mix(key ^ classHash(definingClass(test.getClass())));
+        for (Class<?> dependency : dependencies) {
+            key = mix(key ^ classHash(dependency));
+        }
+        return key;
+    }
+
+    /** Computes the key of a discovered test without loading its class */
+    static long key(DiscoveredTest test, TestSettings settings, ClassLoader classLoader) {
+        long key = hash(test.numRuns() + "|" + settings.timeout() + "|" + settings.testTimeout()
+            + "|" + settings.maxFailures() + "|" + settings.seed() + "|" + test.methodName());
+        return mix(key ^ classHash(classLoader, test.className()));
+    }
+
+    private static Class<?> definingClass(Class<?> testClass) {
+        // Lambdas are hidden classes without bytecode of their own, so use the class whose
+        // source contains the lambda
+        String name = testClass.getName();
+        int lambdaIndex = name.indexOf("$$Lambda");
+        if (lambdaIndex < 0) {
+            return testClass;
+        }
+        try {
+            return Class.forName(name.substring(0, lambdaIndex), false,
+                testClass.getClassLoader());
+        }
+        catch (ClassNotFoundException e) {
+            return testClass;
+        }
+    }
+
+    private static long classHash(Class<?> type) {
+        ClassLoader classLoader = type.getClassLoader();
+        return classHash(
+            classLoader == null ? ClassLoader.getSystemClassLoader() : classLoader, type.getName()
+        );
+    }
+
+    private static long classHash(ClassLoader classLoader, String className) {
+        String resource = className.replace('.', '/') + ".class";
+        try (InputStream bytecode = classLoader.getResourceAsStream(resource)) {
+            if (bytecode == null) {
+                // Without bytecode we cannot tell if the class changed, so never match
+                return System.nanoTime();
+            }
+
+            long hash = 0xcbf29ce484222325L;
+            byte[] chunk = new byte[8192];
+            for (int read; (read = bytecode.read(chunk)) > 0; ) {
+                for (int i = 0; i < read; i++) {
+                    hash = (hash ^ (chunk[i] & 0xff)) * 0x100000001b3L;
+                }
+            }
+            return hash;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static long hash(String text) {
+        // 64-bit FNV-1a, then mixed so that similar names spread out
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+
+    private static final class Record {
+        private final long key;
+        private final long elapsedNanos;
+        private final boolean passed;
+
+        private Record(long key, long elapsedNanos, boolean passed) {
+            this.key = key;
+            this.elapsedNanos = elapsedNanos;
+            this.passed = passed;
+        }
+    }
+}
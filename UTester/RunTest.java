@@ -0,0 +1,26 @@
+package UTester;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method as a test which {@link UTester.TestDiscovery} finds without it being registered
+ * by hand. The method takes no arguments and either returns a {@link UTester.TestResult}, in
+ * which case it is called once per run, or returns a {@link UTester.Test} such as a
+ * {@link UTester.Property}, which is then run instead. Methods which are not static are called
+ * on a new instance of their class, created with its no-argument constructor.
+ * <pre>
+ * &#64;RunTest(value = "Vector.zero(3)", runs = 10)
+ * static TestResult zeroHasDimension() { ... }
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface RunTest {
+    /** The name of the test, or the class and method name if empty */
+    String value() default "";
+
+    int runs() default 1;
+}
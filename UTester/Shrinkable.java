@@ -0,0 +1,112 @@
+package UTester;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A generated value, together with the simpler values it could be shrunk to if a test fails with
+ * it. Shrinks are only computed when asked for, so passing runs never pay for them.
+ */
+public final class Shrinkable<T> {
+    private final T value;
+    private final Supplier<List<Shrinkable<T>>> shrinks;
+
+    private Shrinkable(T value, Supplier<List<Shrinkable<T>>> shrinks) {
+        this.value = value;
+        this.shrinks = shrinks;
+    }
+
+    public static <T> Shrinkable<T> of(T value) {
+        return new Shrinkable<>(value, Collections::emptyList);
+    }
+
+    /** @param shrinks Supplies simpler candidates for the value, simplest first */
+    public static <T> Shrinkable<T> of(T value, Supplier<List<Shrinkable<T>>> shrinks) {
+        return new Shrinkable<>(value, shrinks);
+    }
+
+    public T value() {
+        return value;
+    }
+
+    public List<Shrinkable<T>> shrinks() {
+        return shrinks.get();
+    }
+
+    public <U> Shrinkable<U> map(Function<T, U> function) {
+        return new Shrinkable<>(function.apply(value), () -> {
+            List<Shrinkable<U>> result = new ArrayList<>();
+            for (Shrinkable<T> shrink : shrinks()) {
+                result.add(shrink.map(function));
+            }
+            return result;
+        });
+    }
+
+    /** Removes shrinks whose values do not satisfy the predicate */
+    public Shrinkable<T> filter(Predicate<T> predicate) {
+        return new Shrinkable<>(value, () -> {
+            List<Shrinkable<T>> result = new ArrayList<>();
+            for (Shrinkable<T> shrink : shrinks()) {
+                if (predicate.test(shrink.value)) {
+                    result.add(shrink.filter(predicate));
+                }
+            }
+            return result;
+        });
+    }
+
+    /** Combines two values, shrinking the first value before the second */
+    public static <A, B, R> Shrinkable<R> combine(Shrinkable<A> a, Shrinkable<B> b,
+                                                  BiFunction<A, B, R> function) {
+        return new Shrinkable<>(function.apply(a.value, b.value), () -> {
+            List<Shrinkable<R>> result = new ArrayList<>();
+            for (Shrinkable<A> shrink : a.shrinks()) {
+                result.add(combine(shrink, b, function));
+            }
+            for (Shrinkable<B> shrink : b.shrinks()) {
+                result.add(combine(a, shrink, function));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Combines shrinkable elements into a list which shrinks by first removing elements, down to
+     * minSize of them, and then by shrinking individual elements.
+     */
+    public static <T> Shrinkable<List<T>> list(List<Shrinkable<T>> elements, int minSize) {
+        List<T> values = new ArrayList<>(elements.size());
+        for (Shrinkable<T> element : elements) {
+            values.add(element.value);
+        }
+
+        return new Shrinkable<>(Collections.unmodifiableList(values), () -> {
+            List<Shrinkable<List<T>>> result = new ArrayList<>();
+
+            // Remove ever smaller chunks, so big lists get small quickly
+            for (int chunk = elements.size() - minSize; chunk > 0; chunk /= 2) {
+                for (int start = 0; start + chunk <= elements.size(); start += chunk) {
+                    List<Shrinkable<T>> removed = new ArrayList<>(elements.subList(0, start));
+                    removed.addAll(elements.subList(start + chunk, elements.size()));
+                    result.add(list(removed, minSize));
+                }
+            }
+
+            for (int i = 0; i < elements.size(); i++) {
+                for (Shrinkable<T> shrink : elements.get(i).shrinks()) {
+                    List<Shrinkable<T>> replaced = new ArrayList<>(elements);
+                    replaced.set(i, shrink);
+                    result.add(list(replaced, minSize));
+                }
+            }
+
+            return result;
+        });
+    }
+}
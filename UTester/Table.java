@@ -0,0 +1,423 @@
+package UTester;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Rows of test data read from a memory-mapped file, for checking a function against many inputs
+ * and expected outputs at once. A table turns a check of one row into a test whose run number i
+ * checks row i, so it is run like any other test, and a runner with parallelism splits the rows
+ * into contiguous batches:
+ * <pre>
+ * Table table = Table.csv(Path.of("dot.csv"), true);
+ * runner.runTest("Vector.dot", table.numRows(), table.test(row -&gt; new DoubleTestCaseBuilder()
+ *     .expect(() -&gt; new Vector(row.getDouble(0), row.getDouble(1))
+ *         .dot(new Vector(row.getDouble(2), row.getDouble(3))))
+ *     .toEqual(row.getDouble(4))));
+ * </pre>
+ * Values are decoded straight from the mapped bytes when asked for, so rows are never copied
+ * and numeric columns are read without creating strings. Failures name the row they came from
+ * rather than repeating its values.
+ * <p>
+ * CSV tables are separated by commas, without quoting. Binary tables are fixed size records of
+ * big-endian numbers, as written by {@link java.io.DataOutputStream}. Files are limited to 2GB.
+ */
+public final class Table {
+    private final ByteBuffer data;
+    private final boolean isCsv;
+    private final int firstLine;
+    // For CSV tables, where each row starts, followed by where the last row ends
+    private final int[] rowStarts;
+    // For binary tables, the type and position of each column within a record
+    private final Column[] columns;
+    private final int[] columnOffsets;
+    private final int recordSize;
+    private final int numRows;
+    private final ThreadLocal<Row> rows = ThreadLocal.withInitial(() -> new Row(this));
+
+    private Table(ByteBuffer data, int[] rowStarts, int firstLine, int numRows) {
+        this.data = data;
+        this.isCsv = true;
+        this.firstLine = firstLine;
+        this.rowStarts = rowStarts;
+        this.columns = null;
+        this.columnOffsets = null;
+        this.recordSize = 0;
+        this.numRows = numRows;
+    }
+
+    private Table(ByteBuffer data, Column[] columns) {
+        this.data = data;
+        this.isCsv = false;
+        this.firstLine = 0;
+        this.rowStarts = null;
+        this.columns = columns;
+        this.columnOffsets = new int[columns.length];
+        int offset = 0;
+        for (int i = 0; i < columns.length; i++) {
+            columnOffsets[i] = offset;
+            offset += columns[i].size;
+        }
+        this.recordSize = offset;
+        this.numRows = recordSize == 0 ? 0 : data.capacity() / recordSize;
+    }
+
+    /** Maps a CSV file, skipping its first line if it is a header */
+    public static Table csv(Path path, boolean hasHeader) {
+        ByteBuffer data = map(path);
+
+        // One pass over the file to find where rows start, which lets rows be checked in any
+        // order by any number of threads
+        int[] rowStarts = new int[1024];
+        int numLines = 0;
+        int lineStart = 0;
+        int limit = data.capacity();
+        for (int i = 0; i <= limit; i++) {
+            if (i == limit || data.get(i) == '\n') {
+                if (i > lineStart || i < limit) {
+                    if (numLines + 1 >= rowStarts.length) {
+                        rowStarts = Arrays.copyOf(rowStarts, rowStarts.length * 2);
+                    }
+                    rowStarts[numLines++] = lineStart;
+                }
+                lineStart = i + 1;
+            }
+        }
+        rowStarts[numLines] = limit + 1;
+
+        int skipped = hasHeader && numLines > 0 ? 1 : 0;
+        return new Table(
+            data, Arrays.copyOfRange(rowStarts, skipped, numLines + 1), skipped + 1,
+            numLines - skipped
+        );
+    }
+
+    /** Maps a binary file of fixed size records with the given columns */
+    public static Table binary(Path path, Column... columns) {
+        Table table = new Table(map(path), columns.clone());
+        int size = table.data.capacity();
+        if (table.recordSize > 0 && size % table.recordSize != 0) {
+            throw new IllegalArgumentException(String.format(
+                "Table %s has %d bytes, which is not a whole number of %d byte records",
+                path, size, table.recordSize
+            ));
+        }
+        return table;
+    }
+
+    private static ByteBuffer map(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Table " + path + " is larger than 2GB");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int numRows() {
+        return numRows;
+    }
+
+    /**
+     * Creates a test which checks the row with the same index as the run. Run it
+     * {@link #numRows()} times to check every row. A failing row is checked again on its own
+     * with {@link UTester.TestRunner#replay(String, int, long, Test)}, given the row as the run.
+     */
+    public Test test(RowCheck check) {
+        return () -> {
+            // Each thread reuses one row, so checking a row allocates nothing by itself
+            Row row = rows.get();
+            row.moveTo(TestRandom.currentRun().index());
+            TestResult result = check.check(row);
+            if (result.didPass()) {
+                return result;
+            }
+
+            // The row moves on with the next check on this thread, so a message or input which
+            // reads it is formatted now, while it still shows the failing row
+            TestResult.Failure failure = result.asFailure();
+            String input = failure.input();
+            String location = describe(row.index);
+            return failure
+                .withMessage(failure.message())
+                .withInput(input == null ? location : location + ", " + input);
+        };
+    }
+
+    private String describe(int rowIndex) {
+        return isCsv
+            ? String.format("row %d (line %d)", rowIndex, rowIndex + firstLine)
+            : String.format("row %d", rowIndex);
+    }
+
+    public enum Column {
+        INT(4), LONG(8), FLOAT(4), DOUBLE(8);
+
+        private final int size;
+
+        Column(int size) {
+            this.size = size;
+        }
+    }
+
+    /**
+     * Checks one row. The row is only valid during the call, since each thread reuses one row
+     * for every row it checks.
+     */
+    @FunctionalInterface
+    public interface RowCheck {
+        TestResult check(Row row);
+    }
+
+    /**
+     * A view of one row of a table, whose values are decoded when they are asked for. A row is
+     * moved to the next row once its check returns, so it must not be kept. Failure messages
+     * which read it are formatted before the check's result is returned.
+     */
+    public static final class Row {
+        // Powers of ten which doubles represent exactly, for parsing decimals without strings
+        private static final double[] powersOfTen = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15,
+            1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+        };
+
+        private final Table table;
+        private int index = -1;
+        private int start;
+        // For CSV rows, where each field starts, followed by one past where the last ends
+        private int[] fieldStarts = new int[16];
+        private int numFields;
+
+        private Row(Table table) {
+            this.table = table;
+        }
+
+        private void moveTo(int index) {
+            if (index < 0 || index >= table.numRows) {
+                throw new IndexOutOfBoundsException(
+                    "Run " + index + " has no row in a table of " + table.numRows + " rows"
+                );
+            }
+            this.index = index;
+
+            if (!table.isCsv) {
+                start = index * table.recordSize;
+                return;
+            }
+
+            start = table.rowStarts[index];
+            int end = table.rowStarts[index + 1] - 1;
+            if (end > start && table.data.get(end - 1) == '\r') {
+                end--;
+            }
+
+            numFields = 0;
+            fieldStarts[numFields++] = start;
+            for (int i = start; i < end; i++) {
+                if (table.data.get(i) == ',') {
+                    if (numFields + 1 >= fieldStarts.length) {
+                        fieldStarts = Arrays.copyOf(fieldStarts, fieldStarts.length * 2);
+                    }
+                    fieldStarts[numFields++] = i + 1;
+                }
+            }
+            fieldStarts[numFields] = end + 1;
+        }
+
+        /** The index of the row among the rows of the table, not counting any header */
+        public int index() {
+            return index;
+        }
+
+        public int numColumns() {
+            return table.isCsv ? numFields : table.columns.length;
+        }
+
+        public int getInt(int column) {
+            long value = getLong(column);
+            if ((int) value != value) {
+                throw invalid(column, "an int");
+            }
+            return (int) value;
+        }
+
+        public long getLong(int column) {
+            if (!table.isCsv) {
+                switch (binaryColumn(column)) {
+                    case INT:
+                        return table.data.getInt(start + table.columnOffsets[column]);
+                    case LONG:
+                        return table.data.getLong(start + table.columnOffsets[column]);
+                    default:
+                        throw invalid(column, "an integer");
+                }
+            }
+
+            int from = trimmedStart(column);
+            int to = trimmedEnd(column);
+            boolean isNegative = from < to && table.data.get(from) == '-';
+            if (from < to && (isNegative || table.data.get(from) == '+')) {
+                from++;
+            }
+            if (from == to) {
+                throw invalid(column, "an integer");
+            }
+
+            // Accumulated as a negative number, so that Long.MIN_VALUE can be parsed as well
+            long value = 0;
+            for (int i = from; i < to; i++) {
+                int digit = table.data.get(i) - '0';
+                if (digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10) {
+                    throw invalid(column, "an integer");
+                }
+                value = value * 10 - digit;
+            }
+            if (!isNegative && value == Long.MIN_VALUE) {
+                throw invalid(column, "an integer");
+            }
+            return isNegative ? value : -value;
+        }
+
+        public double getDouble(int column) {
+            if (!table.isCsv) {
+                switch (binaryColumn(column)) {
+                    case INT:
+                    case LONG:
+                        return getLong(column);
+                    case FLOAT:
+                        return table.data.getFloat(start + table.columnOffsets[column]);
+                    default:
+                        return table.data.getDouble(start + table.columnOffsets[column]);
+                }
+            }
+
+            double value = parseSimpleDecimal(trimmedStart(column), trimmedEnd(column));
+            if (!Double.isNaN(value)) {
+                return value;
+            }
+            try {
+                return Double.parseDouble(getString(column).trim());
+            }
+            catch (NumberFormatException e) {
+                throw invalid(column, "a number");
+            }
+        }
+
+        /**
+         * Parses decimals like -12.375 without creating a string. When the digits fit in the 53
+         * bits of a double and there are at most 22 decimals, both the digits and the power of
+         * ten are exact, so a single division rounds exactly like Double.parseDouble. Returns NaN
+         * for anything else, which is then parsed the slow way.
+         */
+        private double parseSimpleDecimal(int from, int to) {
+            boolean isNegative = from < to && table.data.get(from) == '-';
+            if (from < to && (isNegative || table.data.get(from) == '+')) {
+                from++;
+            }
+
+            long digits = 0;
+            int numDigits = 0;
+            int numDecimals = -1;
+            for (int i = from; i < to; i++) {
+                byte c = table.data.get(i);
+                if (c == '.' && numDecimals < 0) {
+                    numDecimals = 0;
+                    continue;
+                }
+                if (c < '0' || c > '9' || digits >= (1L << 53) / 10) {
+                    return Double.NaN;
+                }
+                digits = digits * 10 + (c - '0');
+                numDigits++;
+                numDecimals += numDecimals < 0 ? 0 : 1;
+            }
+
+            int decimals = Math.max(0, numDecimals);
+            if (numDigits == 0 || decimals >= powersOfTen.length) {
+                return Double.NaN;
+            }
+            double value = digits / powersOfTen[decimals];
+            return isNegative ? -value : value;
+        }
+
+        public boolean getBoolean(int column) {
+            String value = getString(column).trim();
+            if (value.equalsIgnoreCase("true") || value.equals("1")) {
+                return true;
+            }
+            if (value.equalsIgnoreCase("false") || value.equals("0")) {
+                return false;
+            }
+            throw invalid(column, "a boolean");
+        }
+
+        public String getString(int column) {
+            if (!table.isCsv) {
+                Column type = binaryColumn(column);
+                return type == Column.FLOAT || type == Column.DOUBLE
+                    ? Double.toString(getDouble(column)) : Long.toString(getLong(column));
+            }
+
+            int from = fieldStart(column);
+            byte[] bytes = new byte[fieldEnd(column) - from];
+            table.data.get(from, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int fieldStart(int column) {
+            if (column < 0 || column >= numFields) {
+                throw new IndexOutOfBoundsException(
+                    "Row " + index + " has no column " + column + ", only " + numFields
+                );
+            }
+            return fieldStarts[column];
+        }
+
+        private int fieldEnd(int column) {
+            return fieldStarts[column + 1] - 1;
+        }
+
+        /** Skips whitespace around a field, which the parsers of strings trim as well */
+        private int trimmedStart(int column) {
+            int from = fieldStart(column);
+            int to = fieldEnd(column);
+            while (from < to && table.data.get(from) <= ' ' && table.data.get(from) >= 0) {
+                from++;
+            }
+            return from;
+        }
+
+        private int trimmedEnd(int column) {
+            int from = fieldStart(column);
+            int to = fieldEnd(column);
+            while (to > from && table.data.get(to - 1) <= ' ' && table.data.get(to - 1) >= 0) {
+                to--;
+            }
+            return to;
+        }
+
+        private Column binaryColumn(int column) {
+            if (column < 0 || column >= table.columns.length) {
+                throw new IndexOutOfBoundsException(
+                    "Table has no column " + column + ", only " + table.columns.length
+                );
+            }
+            return table.columns[column];
+        }
+
+        private IllegalArgumentException invalid(int column, String expected) {
+            return new IllegalArgumentException(String.format(
+                "Column %d of %s is not %s", column, table.describe(index), expected
+            ));
+        }
+    }
+}
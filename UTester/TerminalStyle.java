@@ -1,5 +1,11 @@
 package UTester;
 
+import java.util.ArrayList;
+import java.util.Formattable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public enum TerminalStyle {
     RED(31),
     GREEN(32),
@@ -7,28 +13,161 @@ public enum TerminalStyle {
     CYAN(36),
     RESET(39);
 
-    private final static boolean isPrettyTerminalEnabled = true;
+    // Colors can be turned off with -Dutester.color=false or the NO_COLOR environment variable,
+    // in which case no escape codes are built at all
+    private final static boolean isPrettyTerminalEnabled =
+        !"false".equals(System.getProperty("utester.color")) && System.getenv("NO_COLOR") == null;
+
+    // Format strings are almost always literals, so the cache stays small. The cap protects
+    // against callers which build format strings dynamically
+    private static final int maxCachedTemplates = 256;
 
     private final String ansiCommand;
+    private final Map<String, Template> templates = new ConcurrentHashMap<>();
 
     TerminalStyle(int code) {
         this.ansiCommand = "\u001b[" + code + "m";
     }
 
+    // Runners whose settings turn color off format their output with it turned off on their
+    // thread, see useColor
+    private static final ThreadLocal<Boolean> isColorDisabled =
+        ThreadLocal.withInitial(() -> false);
+
+    public static boolean isPrettyTerminalEnabled() {
+        return isPrettyTerminalEnabled;
+    }
+
+    /**
+     * Turns color on or off for text which the current thread formats, returning the previous
+     * state so it can be restored. Color stays off everywhere if it is turned off globally.
+     */
+    static boolean useColor(boolean isColorEnabled) {
+        boolean previous = !isColorDisabled.get();
+        isColorDisabled.set(!isColorEnabled);
+        return previous;
+    }
+
+    /** Returns whether text formatted by the current thread is colored */
+    static boolean isColorEnabled() {
+        return isPrettyTerminalEnabled && !isColorDisabled.get();
+    }
+
     public String toString() {
-        return isPrettyTerminalEnabled ? ansiCommand : "";
+        return isColorEnabled() ? ansiCommand : "";
     }
 
     public String format(String format, Object... args) {
-        return format(String.format(
-            // We don't know if strings inserted into format may have color info, so
-            // re-apply our color after every inserted string
-            format.replace("%s", "%s" + this),
-            args
-        ));
+        Template template = templates.get(format);
+        if (template == null) {
+            template = Template.compile(format, this);
+            if (templates.size() < maxCachedTemplates) {
+                templates.put(format, template);
+            }
+        }
+        return template.apply(this, args);
     }
 
     public String format(Object obj) {
-        return this + obj.toString() + RESET;
+        return isColorEnabled() ? this + obj.toString() + RESET : obj.toString();
+    }
+
+    /**
+     * Moves the cursor to the start of the line numLines above, and clears everything from there
+     * on, so that the lines can be drawn again in place. Only for output shown in a terminal.
+     */
+    static String eraseLinesAbove(int numLines) {
+        return "\u001b[" + numLines + "F\u001b[J";
+    }
+
+    /** Removes all color codes from text, for output which is not shown in a terminal */
+    public static String strip(String text) {
+        return text.indexOf('\u001b') < 0 ? text : text.replaceAll("\u001b\\[[0-9;]*m", "");
+    }
+
+    /**
+     * A format string which has been prepared for one style. Formats which only use %s, %n and
+     * %% are split into literal pieces and filled in with a StringBuilder, skipping
+     * java.util.Formatter entirely. Other formats fall back to String.format.
+     */
+    private static final class Template {
+        // The text between consecutive %s, or null if the format needs java.util.Formatter
+        private final String[] literals;
+        private final String format;
+        private final String styledFormat;
+        private final int literalLength;
+
+        private Template(String[] literals, String format, String styledFormat) {
+            this.literals = literals;
+            this.format = format;
+            this.styledFormat = styledFormat;
+
+            int length = 0;
+            if (literals != null) {
+                for (String literal : literals) {
+                    length += literal.length();
+                }
+            }
+            this.literalLength = length;
+        }
+
+        private static Template compile(String format, TerminalStyle style) {
+            // We don't know if strings inserted into format may have color info, so
+            // re-apply our color after every inserted string. Whether color is used is only
+            // known when the template is applied, so both versions are kept
+            String styledFormat = format.replace("%s", "%s" + style.ansiCommand);
+
+            List<String> literals = new ArrayList<>();
+            StringBuilder literal = new StringBuilder();
+            for (int i = 0; i < format.length(); i++) {
+                char c = format.charAt(i);
+                if (c != '%') {
+                    literal.append(c);
+                    continue;
+                }
+
+                char specifier = i + 1 < format.length() ? format.charAt(++i) : 0;
+                if (specifier == 's') {
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                }
+                else if (specifier == 'n') {
+                    literal.append(System.lineSeparator());
+                }
+                else if (specifier == '%') {
+                    literal.append('%');
+                }
+                else {
+                    return new Template(null, format, styledFormat);
+                }
+            }
+            literals.add(literal.toString());
+
+            return new Template(literals.toArray(new String[0]), format, styledFormat);
+        }
+
+        private String apply(TerminalStyle style, Object[] args) {
+            if (literals == null || args.length < literals.length - 1 || hasFormattable(args)) {
+                return style.format(String.format(isColorEnabled() ? styledFormat : format, args));
+            }
+
+            String color = style.toString();
+            StringBuilder result = new StringBuilder(literalLength + 16 * literals.length);
+            result.append(color).append(literals[0]);
+            for (int i = 1; i < literals.length; i++) {
+                result.append(args[i - 1]).append(color).append(literals[i]);
+            }
+            return result.append(RESET).toString();
+        }
+
+        private static boolean hasFormattable(Object[] args) {
+            // Formattable arguments can customize how %s prints them, which only Formatter does
+            for (Object arg : args) {
+                if (arg instanceof Formattable) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 }
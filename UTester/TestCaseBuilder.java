@@ -1,22 +1,37 @@
 package UTester;
 
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
 import java.util.function.*;
 
 import static UTester.TerminalStyle.CYAN;
 import static UTester.TerminalStyle.RED;
 
 public class TestCaseBuilder<R> {
+    // Marks a builder whose expected value was given directly to expect(R), which lets us store
+    // the value itself rather than allocating a capturing lambda for it
+    private static final Supplier<?> CONSTANT = () -> null;
+
     private final Supplier<R> supplier;
+    private final R value;
     private final Function<R, String> formatter;
     private final Supplier<String> input;
 
     public TestCaseBuilder() {
-        this(null, Object::toString, null);
+        this(null, null, Object::toString, null);
     }
 
     private TestCaseBuilder(Supplier<R> supplier, Function<R, String> formatter,
                             Supplier<String> input) {
+        this(supplier, null, formatter, input);
+    }
+
+    private TestCaseBuilder(Supplier<R> supplier, R value, Function<R, String> formatter,
+                            Supplier<String> input) {
         this.supplier = supplier;
+        this.value = value;
         this.formatter = formatter;
         this.input = input;
     }
@@ -25,90 +40,267 @@ public class TestCaseBuilder<R> {
         return new TestCaseBuilder<>(supplier, formatter, input);
     }
 
+    /**
+     * Expects the given value, which is stored as is rather than captured by a lambda. A builder
+     * made once and reused by every run allocates nothing when a run passes, while one built on
+     * every run allocates the builders themselves, unless the JIT manages to remove them.
+     */
+    @SuppressWarnings("unchecked")
     public TestCaseBuilder<R> expect(R value) {
-        return expect(() -> value);
+        return new TestCaseBuilder<>((Supplier<R>) CONSTANT, value, formatter, input);
+    }
+
+    /**
+     * Expects the stage made by the supplier to complete with the actual value. The assertions of
+     * the returned builder return stages too, so that an {@link UTester.AsyncTest} can check the
+     * value without waiting for it.
+     */
+    public AsyncTestCaseBuilder<R> expectAsync(Supplier<? extends CompletionStage<R>> supplier) {
+        return new AsyncTestCaseBuilder<>(this, supplier);
     }
 
     public TestCaseBuilder<R> withFormatter(Function<R, String> formatter) {
-        return new TestCaseBuilder<>(supplier, formatter, input);
+        return new TestCaseBuilder<>(supplier, value, formatter, input);
     }
 
     public TestCaseBuilder<R> withInputString(Supplier<String> input) {
-        return new TestCaseBuilder<>(supplier, formatter, input);
+        return new TestCaseBuilder<>(supplier, value, formatter, input);
     }
 
     public TestCaseBuilder<R> withInputString(String input) {
         return withInputString(() -> input);
     }
 
+    Supplier<R> supplier() {
+        return supplier == CONSTANT ? () -> value : supplier;
+    }
+
+    String format(R value) {
+        return formatter.apply(value);
+    }
+
+    private void requireSupplier() {
+        if (supplier == null) {
+            throw new IllegalStateException("Nothing to measure, call expect() first");
+        }
+    }
+
+    private R actual() {
+        return supplier == CONSTANT ? value : supplier.get();
+    }
+
     public TestResult toEqual(R expected) {
         return toEqual(expected, Object::equals);
     }
 
     public TestResult toEqual(R expected, BiPredicate<R, R> equals) {
-        return toSatisfy(
-            actual -> equals.test(actual, expected),
-            actual -> RED.format(
+        // Checked inline rather than through toSatisfy, since lambdas capturing expected would
+        // be allocated on every call, even when the test passes
+        try {
+            R actualValue = actual();
+            if (equals.test(actualValue, expected)) {
+                return TestResult.success();
+            }
+
+            return failure(() -> RED.format(
                 "Expected %s, instead got %s",
                 CYAN.format(formatter.apply(expected)),
-                CYAN.format(formatter.apply(actual))
-            )
-        );
+                CYAN.format(formatter.apply(actualValue))
+            ));
+        }
+        catch (Throwable e) {
+            return failure(e::getMessage);
+        }
+    }
+
+    /**
+     * Expects the actual value to equal the expected one structurally, as compared by the diff.
+     * A failure shows only where the values first differ, so large values stay cheap to report.
+     */
+    public TestResult toEqual(R expected, Diff diff) {
+        try {
+            Diff.Mismatch mismatch = diff.mismatch(expected, actual());
+            if (mismatch == null) {
+                return TestResult.success();
+            }
+
+            return failure(() -> RED.format(
+                "Expected %s%s, instead got %s",
+                CYAN.format(mismatch.expected()),
+                mismatch.path().isEmpty() ? "" : " at " + CYAN.format(mismatch.path()),
+                CYAN.format(mismatch.actual())
+            ));
+        }
+        catch (Throwable e) {
+            return failure(e::getMessage);
+        }
     }
 
     public TestResult toBeTrue() {
         return toSatisfy(
-            actual -> ((Boolean) true).equals(actual),
+            actual -> Boolean.TRUE.equals(actual),
             x -> RED.format("Expected true")
         );
     }
 
     public TestResult toBeFalse() {
         return toSatisfy(
-            actual -> ((Boolean) true).equals(actual),
+            actual -> Boolean.FALSE.equals(actual),
             x -> RED.format("Expected false")
         );
     }
 
     public TestResult toSatisfy(Predicate<R> predicate, Function<R, String> message) {
         try {
-            R actualValue = supplier.get();
+            R actualValue = actual();
             if (predicate.test(actualValue)) {
                 return TestResult.success();
             }
             else {
-                throw new AssertionError(message.apply(actualValue));
+                return failure(() -> message.apply(actualValue));
             }
         }
         catch (Throwable e) {
-            String errorMessage = e.getMessage();
-
-            return TestResult
-                .failure()
-                .withMessage(errorMessage)
-                .withInput(input == null ? null : input.get());
+            return failure(e::getMessage);
         }
     }
 
+    TestResult.Failure failure(Supplier<String> message) {
+        return TestResult
+            .failure()
+            .withLazyMessage(message)
+            .withLazyInput(input);
+    }
+
     public TestResult toThrow(Class<Throwable> throwableClass) {
         try {
-            R actualValue = supplier.get();
-            return TestResult.failure().withMessage(String.format(
+            R actualValue = actual();
+            return failure(() -> String.format(
                 "Expected to throw %s, instead got %s",
                 CYAN.format(throwableClass.getSimpleName()),
                 CYAN.format(formatter.apply(actualValue))
-            )).withInput(input == null ? null : input.get());
+            ));
         }
         catch (Throwable e) {
             if (throwableClass.isInstance(e)) {
                 return TestResult.success();
             }
             else {
-                return TestResult
-                    .failure()
-                    .withMessage(e.getMessage())
-                    .withInput(input == null ? null : input.get());
+                return failure(e::getMessage);
+            }
+        }
+    }
+
+    /**
+     * Expects the supplier to take at most the given time per call. Like a JMH benchmark, the
+     * supplier is warmed up first, then timed over several iterations, and the median time per
+     * call is compared with the limit.
+     */
+    public TestResult toCompleteWithin(Duration limit) {
+        try {
+            requireSupplier();
+            double nanos = PerformanceCheck.medianNanosPerCall(supplier());
+            if (nanos <= limit.toNanos()) {
+                return TestResult.success();
             }
+
+            return failure(() -> RED.format(
+                "Expected to complete within %s, instead took %s per call",
+                CYAN.format(BenchmarkReport.formatNanos(limit.toNanos())),
+                CYAN.format(BenchmarkReport.formatNanos(nanos))
+            ));
+        }
+        catch (Throwable e) {
+            return failure(e::getMessage);
+        }
+    }
+
+    /**
+     * Expects the supplier to allocate at most the given number of bytes per call, on average
+     * after warming up. Fails if the JVM cannot count allocations per thread.
+     */
+    public TestResult toAllocateAtMost(long bytes) {
+        try {
+            requireSupplier();
+            double allocated = PerformanceCheck.allocatedBytesPerCall(supplier());
+            if (allocated < 0) {
+                return failure(() -> RED.format("This JVM cannot measure allocations"));
+            }
+            if (allocated <= bytes) {
+                return TestResult.success();
+            }
+
+            return failure(() -> RED.format(
+                "Expected to allocate at most %s, instead allocated %s per call",
+                CYAN.format("%d bytes", bytes), CYAN.format("%.1f bytes", allocated)
+            ));
+        }
+        catch (Throwable e) {
+            return failure(e::getMessage);
+        }
+    }
+
+    /** Checks the scaling of a workload for sizes from 512 to 8192, see below */
+    public static <R> TestResult toScaleAs(Complexity complexity,
+                                           IntFunction<Supplier<R>> workload) {
+        return toScaleAs(complexity, workload, 512, 8192);
+    }
+
+    /**
+     * Expects the running time of a workload to grow no faster than the given complexity. The
+     * workload function sets up the work for an input of size n, and returns the supplier to
+     * time. Sizes double from minSize up to maxSize, and a power law is fitted to the times.
+     * <p>
+     * Polynomial orders are told apart reliably, so an O(n) method which became O(n^2) fails,
+     * but a single log factor is within the noise of the fit and is not.
+     * <p>
+     * The workload brings its own suppliers, so this is static rather than a check of a built
+     * test case: {@code TestCaseBuilder.toScaleAs(Complexity.LINEAR, n -> ...)}.
+     */
+    public static <R> TestResult toScaleAs(Complexity complexity,
+                                           IntFunction<Supplier<R>> workload, int minSize,
+                                           int maxSize) {
+        if (minSize < 2 || maxSize < 2 * minSize) {
+            throw new IllegalArgumentException("Sizes must grow from at least 2 to at least 4");
+        }
+
+        int numSizes = 1 + (int) (Math.log((double) maxSize / minSize) / Math.log(2));
+        int[] sizes = new int[numSizes];
+        for (int i = 0; i < numSizes; i++) {
+            sizes[i] = minSize << i;
+        }
+
+        try {
+            double[] fit = PerformanceCheck.fitScaling(workload, sizes);
+            double exponent = fit[0];
+            if (exponent <= complexity.slope(minSize, sizes[numSizes - 1]) + 0.5) {
+                return TestResult.success();
+            }
+
+            return TestResult.failure().withLazyMessage(() -> {
+                // Name the complexity whose own slope over these sizes is closest to the fit
+                Complexity closest = Complexity.CONSTANT;
+                for (Complexity candidate : Complexity.values()) {
+                    double distance = candidate.slope(minSize, sizes[numSizes - 1]) - exponent;
+                    double closestDistance = closest.slope(minSize, sizes[numSizes - 1]) - exponent;
+                    closest = Math.abs(distance) < Math.abs(closestDistance) ? candidate : closest;
+                }
+
+                StringBuilder times = new StringBuilder();
+                for (int i = 0; i < numSizes; i++) {
+                    times.append(i == 0 ? "" : ", ").append(String.format(
+                        "n=%d: %s", sizes[i], BenchmarkReport.formatNanos(fit[i + 1])
+                    ));
+                }
+                return RED.format(
+                    "Expected to scale as %s, instead scaled as %s (n^%.2f, %s)",
+                    CYAN.format(complexity.toString()), CYAN.format(closest.toString()),
+                    exponent, times
+                );
+            });
+        }
+        catch (Throwable e) {
+            return TestResult.failure().withLazyMessage(e::getMessage);
         }
     }
 
@@ -152,6 +344,22 @@ public class TestCaseBuilder<R> {
                 inputFormatter == null ? null : () -> inputFormatter.apply(input)
             );
         }
+
+        /**
+         * Creates a property test which calls the function with a generated input on every run.
+         * Failing inputs are shrunk, and are displayed even if no input formatter was given.
+         */
+        public Property<T> forAll(Generator<T> inputs,
+                                  BiFunction<TestCaseBuilder<R>, T, TestResult> check) {
+            TestCaseBuilder1<T, R> tester = inputFormatter == null
+                ? withInputFormatter(Property::format) : this;
+            return Property.forAll(inputs, input -> check.apply(tester.withInput(input), input));
+        }
+    }
+
+    @FunctionalInterface
+    public interface PropertyCheck<T1, T2, R> {
+        TestResult check(TestCaseBuilder<R> call, T1 input1, T2 input2);
     }
 
     public static class TestCaseBuilder2<T1, T2, R> {
@@ -197,6 +405,25 @@ public class TestCaseBuilder<R> {
             );
         }
 
+        /**
+         * Creates a property test which calls the function with generated inputs on every run.
+         * Failing inputs are shrunk, and are displayed even if no input formatters were given.
+         */
+        public Property<Map.Entry<T1, T2>> forAll(Generator<T1> inputs1, Generator<T2> inputs2,
+                                                  PropertyCheck<T1, T2, R> check) {
+            TestCaseBuilder2<T1, T2, R> tester = withInputFormatter(
+                input1Formatter == null ? Property::format : input1Formatter,
+                input2Formatter == null ? Property::format : input2Formatter
+            );
+            return Property.forAll(
+                Generator.combine(inputs1, inputs2, AbstractMap.SimpleImmutableEntry::new),
+                inputs -> check.check(
+                    tester.expectCall(inputs.getKey(), inputs.getValue()),
+                    inputs.getKey(), inputs.getValue()
+                )
+            );
+        }
+
         private String formatInputs(T1 input1, T2 input2) {
             String input1String = input1Formatter == null ? null :
                 input1Formatter.apply(input1);
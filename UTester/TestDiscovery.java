@@ -0,0 +1,256 @@
+package UTester;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+/**
+ * Finds {@link UTester.RunTest} methods on the class path. Class files are read directly and in
+ * parallel rather than loaded, so only classes which actually contain tests are ever loaded.
+ * <p>
+ * Scanning can be skipped entirely by writing an index at build time, which {@link #discover()}
+ * then reads instead:
+ * <pre>
+ * java -cp build UTester.TestDiscovery --write-index build/META-INF/utester-tests.idx build
+ * </pre>
+ * Running this class without arguments runs every discovered test.
+ */
+public final class TestDiscovery {
+    /** Where {@link #discover()} looks for indexes written by {@link #writeIndex(List, Path)} */
+    public static final String indexResource = "META-INF/utester-tests.idx";
+    private static final String indexHeader = "# UTester test index 1";
+
+    private TestDiscovery() {}
+
+    /**
+     * Finds every test on the class path of the current thread, from the indexes on the class
+     * path if there are any, and otherwise by scanning the class path
+     */
+    public static List<DiscoveredTest> discover() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            Enumeration<URL> indexes = classLoader.getResources(indexResource);
+            if (!indexes.hasMoreElements()) {
+                return scanClassPath();
+            }
+
+            List<DiscoveredTest> tests = new ArrayList<>();
+            while (indexes.hasMoreElements()) {
+                try (InputStream index = indexes.nextElement().openStream()) {
+                    tests.addAll(readIndex(index));
+                }
+            }
+            return tests;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Scans every directory and jar on the java.class.path */
+    public static List<DiscoveredTest> scanClassPath() {
+        List<Path> roots = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                roots.add(Path.of(entry));
+            }
+        }
+        return scan(roots);
+    }
+
+    /** Scans the class files in the given directories and jars, in parallel */
+    public static List<DiscoveredTest> scan(List<Path> roots) {
+        List<DiscoveredTest> tests = new ArrayList<>();
+        for (Path root : roots) {
+            if (Files.isDirectory(root)) {
+                tests.addAll(scanDirectory(root));
+            }
+            else if (Files.isRegularFile(root)) {
+                tests.addAll(scanJar(root));
+            }
+        }
+
+        // Parallel scanning finishes in any order, so sort for stable output
+        tests.sort(Comparator.comparing(DiscoveredTest::className)
+            .thenComparing(DiscoveredTest::methodName));
+        return tests;
+    }
+
+    private static List<DiscoveredTest> scanDirectory(Path root) {
+        List<Path> classFiles;
+        try (Stream<Path> paths = Files.walk(root)) {
+            classFiles = paths
+                .filter(path -> path.toString().endsWith(".class"))
+                .collect(Collectors.toList());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return classFiles
+            .parallelStream()
+            .flatMap(path -> {
+                try {
+                    return ClassFileScanner.scan(Files.readAllBytes(path)).stream();
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })
+            .collect(Collectors.toList());
+    }
+
+    private static List<DiscoveredTest> scanJar(Path jar) {
+        ZipFile zip;
+        try {
+            zip = new ZipFile(jar.toFile());
+        }
+        catch (IOException e) {
+            // Not a jar, such as a resource file which happens to be on the class path
+            return List.of();
+        }
+
+        // A ZipFile may be read by several threads at once
+        try (zip) {
+            return Collections.list(zip.entries())
+                .parallelStream()
+                .filter(entry -> entry.getName().endsWith(".class") && !entry.isDirectory())
+                .flatMap(entry -> {
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        return ClassFileScanner.scan(in.readAllBytes()).stream();
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .collect(Collectors.toList());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Builds a group running all the given tests */
+    public static TestGroup group(String groupName, TestRunner runner,
+                                  List<DiscoveredTest> tests) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        TestGroup group = new TestGroup(groupName, runner);
+        for (DiscoveredTest test : tests) {
+            // The declaring class is listed so that a result cache notices when the test changes
+            group.add(
+                test.testName(), test.numRuns(), test.load(classLoader),
+                test.loadClass(classLoader)
+            );
+        }
+        return group;
+    }
+
+    /** Writes an index which {@link #discover()} reads instead of scanning */
+    public static void writeIndex(List<DiscoveredTest> tests, Path path) {
+        try {
+            if (path.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                writer.write(indexHeader + "\n");
+                for (DiscoveredTest test : tests) {
+                    writer.write(String.join(
+                        "\t", test.className(), test.methodName(), escape(test.testName()),
+                        Integer.toString(test.numRuns()), test.isStatic() ? "static" : "instance"
+                    ) + "\n");
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static List<DiscoveredTest> readIndex(InputStream index) throws IOException {
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(index, StandardCharsets.UTF_8)
+        );
+        if (!indexHeader.equals(reader.readLine())) {
+            throw new IOException("Not a UTester test index");
+        }
+
+        List<DiscoveredTest> tests = new ArrayList<>();
+        for (String line; (line = reader.readLine()) != null; ) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 5) {
+                throw new IOException("Malformed test index line: " + line);
+            }
+            tests.add(new DiscoveredTest(
+                fields[0], fields[1], unescape(fields[2]), Integer.parseInt(fields[3]),
+                fields[4].equals("static")
+            ));
+        }
+        return tests;
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+
+    private static String unescape(String text) {
+        StringBuilder result = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char escaped = text.charAt(++i);
+                result.append(escaped == 't' ? '\t' : escaped == 'n' ? '\n' : escaped);
+            }
+            else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Runs every discovered test, in N worker JVMs with {@code --fork N}. With
+     * {@code --write-index <file> [roots...]}, scans the given roots, or the class path, and
+     * writes an index of their tests instead.
+     */
+    public static void main(String[] args) {
+        if (args.length >= 2 && args[0].equals("--write-index")) {
+            List<Path> roots = new ArrayList<>();
+            for (int i = 2; i < args.length; i++) {
+                roots.add(Path.of(args[i]));
+            }
+            List<DiscoveredTest> tests = roots.isEmpty() ? scanClassPath() : scan(roots);
+            writeIndex(tests, Path.of(args[1]));
+            TestFramework.defaultRunner().printLine(
+                () -> String.format("Indexed %d tests in %s", tests.size(), args[1])
+            );
+            return;
+        }
+
+        if (args.length == 2 && args[0].equals("--fork")) {
+            new ForkedTestRunner(TestFramework.defaultRunner(), Integer.parseInt(args[1]))
+                .run(discover());
+            return;
+        }
+
+        group("Discovered tests", TestFramework.defaultRunner(), discover()).run();
+    }
+}
@@ -0,0 +1,377 @@
+package UTester;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A single execution of all the runs of one test. Runs are split into contiguous shards, one per
+ * worker. Without time limits, a single shard is run on the calling thread. With time limits,
+ * shards are run on daemon threads while the calling thread watches the clock, so that a run
+ * which hangs can be abandoned instead of stalling everything.
+ * <p>
+ * Cancellation is cooperative: a run which is abandoned is interrupted, and any remaining runs
+ * are skipped, but the run itself only stops early if it reacts to the interrupt.
+ */
+final class TestExecution {
+    private final Test test;
+    private final int numRuns;
+    private final int numWorkers;
+    private final FailureCollector failures;
+    private final Duration runTimeout;
+    private final Duration testTimeout;
+    private final int maxFailures;
+    private final long rootSeed;
+    private final boolean isReplay;
+    private final int replayRun;
+    private final TestProgress progress;
+
+    private final AtomicInteger numFailures = new AtomicInteger();
+    private volatile String stopReason = null;
+
+    TestExecution(Test test, int numRuns, int numWorkers, FailureCollector failures,
+                  TestSettings settings) {
+        this(test, numRuns, numWorkers, failures, settings, null, 0, null);
+    }
+
+    /** Creates an execution which repeats run replayRun, with replaySeed as the seed of its runs */
+    TestExecution(Test test, int numRuns, int numWorkers, FailureCollector failures,
+                  TestSettings settings, long replaySeed, int replayRun) {
+        this(test, numRuns, numWorkers, failures, settings, replaySeed, replayRun, null);
+    }
+
+    /** Creates an execution which counts its runs in progress, with one slot per worker */
+    TestExecution(Test test, int numRuns, int numWorkers, FailureCollector failures,
+                  TestSettings settings, TestProgress progress) {
+        this(test, numRuns, numWorkers, failures, settings, null, 0, progress);
+    }
+
+    private TestExecution(Test test, int numRuns, int numWorkers, FailureCollector failures,
+                          TestSettings settings, Long replaySeed, int replayRun,
+                          TestProgress progress) {
+        this.test = test;
+        this.numRuns = numRuns;
+        this.numWorkers = Math.max(1, Math.min(numWorkers, numRuns));
+        this.failures = failures;
+        this.runTimeout = settings.timeout();
+        this.testTimeout = settings.testTimeout();
+        this.maxFailures = settings.maxFailures();
+        this.isReplay = replaySeed != null;
+        this.replayRun = replayRun;
+        this.rootSeed = isReplay ? replaySeed
+            : settings.seed() != null ? settings.seed() : TestRandom.newRootSeed();
+        this.progress = progress;
+    }
+
+    TestReport run(String testName) {
+        OutputCapture capture = OutputCapture.start();
+        OutputCapture previousCapture = capture.bind();
+        boolean isTimed = runTimeout != null || testTimeout != null;
+        List<Shard> shards;
+
+        long startGcCount = TestMetrics.totalGcCount();
+        long startGcTimeMillis = TestMetrics.totalGcTimeMillis();
+
+        long startTimeNanos = System.nanoTime();
+
+        try {
+            if (numWorkers == 1 && !isTimed) {
+                Shard shard = new Shard(0, 0, numRuns, failures, false);
+                shard.run();
+                shards = List.of(shard);
+            }
+            else {
+                shards = runShards(capture, isTimed, startTimeNanos);
+            }
+        }
+        finally {
+            OutputCapture.restore(previousCapture);
+        }
+
+        long endTimeNanos = System.nanoTime();
+
+        // Failures remember their run index, so the merged failures stay in run order
+        int numRunsCompleted = 0;
+        long cpuNanos = 0;
+        long allocatedBytes = 0;
+        LatencyHistogram runDurations = new LatencyHistogram();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                numRunsCompleted += shard.numRunsCompleted;
+                cpuNanos += shard.cpuNanos;
+                allocatedBytes = allocatedBytes < 0 || shard.allocatedBytes < 0
+                    ? -1 : allocatedBytes + shard.allocatedBytes;
+                runDurations.merge(shard.runDurations);
+                if (shard.failures != failures) {
+                    failures.merge(shard.failures);
+                }
+            }
+        }
+
+        long elapsedNanos = endTimeNanos - startTimeNanos;
+        TestMetrics metrics = new TestMetrics(
+            runDurations, allocatedBytes, TestMetrics.totalGcCount() - startGcCount,
+            TestMetrics.totalGcTimeMillis() - startGcTimeMillis, cpuNanos, elapsedNanos
+        );
+        return new TestReport(
+            testName, numRuns, numRunsCompleted, failures, elapsedNanos, cpuNanos,
+            capture.finish(), stopReason, metrics
+        );
+    }
+
+    /**
+     * Counts a failure, and returns whether it is within the limit. Workers which fail at once
+     * may all pass the check of the stop reason, so a failure over the limit is dropped along
+     * with its run, as if the run had not been started.
+     */
+    private boolean reserveFailure() {
+        int failureNumber = numFailures.incrementAndGet();
+        if (failureNumber >= maxFailures) {
+            stop(String.format("Stopped after %d failures", maxFailures));
+        }
+        return failureNumber <= maxFailures;
+    }
+
+    private long seedOf(int runIndex) {
+        return isReplay ? rootSeed : TestRandom.seedForRun(rootSeed, runIndex);
+    }
+
+    /** Returns the index run i is known by, which for a replay is the index of the replayed run */
+    private int indexOf(int runIndex) {
+        return isReplay ? replayRun : runIndex;
+    }
+
+    /**
+     * Marks a failure with the index of the run that failed, and the seed which replays it if
+     * the run drew randomness
+     */
+    private TestResult.Failure ofRun(int runIndex, TestResult.Failure failure,
+                                     boolean didUseRandom) {
+        return failure.withRun(indexOf(runIndex), didUseRandom ? seedOf(runIndex) : null);
+    }
+
+    private void stop(String reason) {
+        if (stopReason == null) {
+            stopReason = reason;
+        }
+    }
+
+    private List<Shard> runShards(OutputCapture capture, boolean isTimed, long startTimeNanos) {
+        // Daemon threads, so that runs which never finish cannot keep the JVM alive
+        ExecutorService executor = Executors.newFixedThreadPool(numWorkers, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Shard> shards = new ArrayList<>(numWorkers);
+        List<Future<?>> futures = new ArrayList<>(numWorkers);
+
+        try {
+            for (int i = 0; i < numWorkers; i++) {
+                // Shard boundaries are spread evenly so no worker gets more than one extra run
+                int start = (int) ((long) numRuns * i / numWorkers);
+                int end = (int) ((long) numRuns * (i + 1) / numWorkers);
+                Shard shard = new Shard(i, start, end, failures.emptyCopy(), isTimed);
+                shards.add(shard);
+                futures.add(executor.submit(capture.bound(() -> {
+                    shard.run();
+                    return null;
+                })));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                if (isTimed) {
+                    awaitTimed(futures.get(i), shards, futures, startTimeNanos);
+                }
+                else {
+                    futures.get(i).get();
+                }
+            }
+            return shards;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for test runs", e);
+        }
+        catch (ExecutionException e) {
+            // Rethrow unchecked exceptions unwrapped, as a sequential run would have done
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Test run threw an exception", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void awaitTimed(Future<?> future, List<Shard> shards, List<Future<?>> futures,
+                            long startTimeNanos)
+        throws InterruptedException, ExecutionException {
+        long limitNanos = Math.min(
+            runTimeout == null ? Long.MAX_VALUE : runTimeout.toNanos(),
+            testTimeout == null ? Long.MAX_VALUE : testTimeout.toNanos()
+        );
+        // Check the clock often enough to notice a timeout within about a quarter of the limit
+        long pollNanos = Math.max(1_000_000, Math.min(100_000_000, limitNanos / 4));
+
+        while (true) {
+            try {
+                future.get(pollNanos, TimeUnit.NANOSECONDS);
+                return;
+            }
+            catch (CancellationException e) {
+                return;
+            }
+            catch (TimeoutException e) {
+                checkDeadlines(shards, futures, startTimeNanos);
+            }
+        }
+    }
+
+    private void checkDeadlines(List<Shard> shards, List<Future<?>> futures,
+                                long startTimeNanos) {
+        long now = System.nanoTime();
+        boolean isTestOverBudget = testTimeout != null
+            && now - startTimeNanos > testTimeout.toNanos();
+
+        if (isTestOverBudget) {
+            stop(String.format("Test timed out after %dms", testTimeout.toMillis()));
+        }
+
+        for (int i = 0; i < shards.size(); i++) {
+            Shard shard = shards.get(i);
+            int run = shard.currentRun;
+            if (run < 0) {
+                continue;
+            }
+
+            boolean isRunOverBudget = runTimeout != null
+                && now - shard.runStartNanos > runTimeout.toNanos();
+
+            if (isRunOverBudget || isTestOverBudget) {
+                Duration limit = isRunOverBudget ? runTimeout : testTimeout;
+                // Whether the run drew randomness is only known to its own thread
+                if (shard.abandon(run, ofRun(run, TestResult.timeout(limit), true))) {
+                    if (isRunOverBudget) {
+                        stop(String.format("Run timed out after %dms", limit.toMillis()));
+                    }
+                    futures.get(i).cancel(true);
+                }
+            }
+        }
+    }
+
+    private final class Shard {
+        private final int index;
+        private final int start;
+        private final int end;
+        private final FailureCollector failures;
+        // Only shards which may be abandoned by the watching thread need to synchronize
+        private final boolean isWatched;
+
+        private volatile int currentRun = -1;
+        private volatile long runStartNanos;
+
+        // Each shard records into its own histogram, so recording never contends
+        private final LatencyHistogram runDurations = new LatencyHistogram();
+        private int numRunsCompleted = 0;
+        private long cpuNanos = 0;
+        private long allocatedBytes = 0;
+        private boolean isAbandoned = false;
+
+        private Shard(int index, int start, int end, FailureCollector failures,
+                      boolean isWatched) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+            this.failures = failures;
+            this.isWatched = isWatched;
+        }
+
+        private void run() {
+            long startCpuNanos = TestFramework.currentThreadCpuNanos();
+            long startAllocatedBytes = TestFramework.currentThreadAllocatedBytes();
+            TestRandom.Run random = TestRandom.currentRun();
+
+            try {
+                for (int i = start; i < end && stopReason == null; i++) {
+                    random.start(indexOf(i), seedOf(i));
+                    long startNanos = System.nanoTime();
+                    if (isWatched) {
+                        runStartNanos = startNanos;
+                        currentRun = i;
+                    }
+
+                    TestResult result = test.run();
+                    long durationNanos = System.nanoTime() - startNanos;
+
+                    if (isWatched) {
+                        synchronized (this) {
+                            currentRun = -1;
+                            if (isAbandoned) {
+                                return;
+                            }
+                            record(i, result, durationNanos);
+                        }
+                    }
+                    else {
+                        record(i, result, durationNanos);
+                    }
+                }
+            }
+            finally {
+                long shardCpuNanos = TestFramework.currentThreadCpuNanos() - startCpuNanos;
+                long endAllocatedBytes = TestFramework.currentThreadAllocatedBytes();
+                synchronized (this) {
+                    cpuNanos = shardCpuNanos;
+                    allocatedBytes = startAllocatedBytes < 0 || endAllocatedBytes < 0
+                        ? -1 : endAllocatedBytes - startAllocatedBytes;
+                }
+            }
+        }
+
+        private void record(int runIndex, TestResult result, long durationNanos) {
+            boolean didFail = !result.didPass();
+            if (didFail && !reserveFailure()) {
+                return;
+            }
+            runDurations.record(durationNanos);
+            numRunsCompleted++;
+            if (progress != null) {
+                progress.runCompleted(index, didFail);
+            }
+            if (didFail) {
+                boolean didUseRandom = TestRandom.currentRun().wasUsed();
+                failures.add(runIndex, ofRun(runIndex, result.asFailure(), didUseRandom));
+            }
+        }
+
+        /**
+         * Gives up on the given run if it is still in progress, counting it as failed. Returns
+         * whether the run was abandoned.
+         */
+        private synchronized boolean abandon(int runIndex, TestResult.Failure failure) {
+            if (isAbandoned || currentRun != runIndex) {
+                return false;
+            }
+            isAbandoned = true;
+            if (!reserveFailure()) {
+                return true;
+            }
+            numRunsCompleted++;
+            failures.add(runIndex, failure);
+            // The shard's thread no longer counts into its slot, so holding the lock is enough
+            if (progress != null) {
+                progress.runCompleted(index, true);
+            }
+            return true;
+        }
+    }
+}
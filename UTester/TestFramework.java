@@ -1,76 +1,120 @@
 package UTester;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import static UTester.TerminalStyle.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 
+/**
+ * Shortcuts for running tests with a shared {@link TestRunner} which uses the default
+ * {@link TestSettings}. Create a TestRunner to run tests with other settings.
+ */
 public class TestFramework {
-    private static final int maxFailuresToPrint = 3;
-    private static final int indentation = 1;
+    private static final TestRunner defaultRunner = new TestRunner();
 
     public static void runTest(String testName, Test test) {
         TestFramework.runTest(testName, 1, test);
     }
 
     public static void runTest(String testName, int numRuns, Test test) {
-        List<TestResult.Failure> failures = new ArrayList<>();
+        TestFramework.runTest(testName, numRuns, 1, test);
+    }
 
-        long startTimeNanos = System.nanoTime();
+    /**
+     * Runs a test numRuns times, splitting the runs into contiguous shards which are executed by
+     * numWorkers threads at once. The test must be safe to run from several threads concurrently.
+     * Failures are reported in run order, exactly as if the runs had been executed sequentially.
+     */
+    public static void runTest(String testName, int numRuns, int numWorkers, Test test) {
+        defaultRunner.publish(execute(testName, numRuns, numWorkers, test));
+    }
 
-        for (int i = 0; i < numRuns; i++) {
-            TestResult result = test.run();
+    /** Runs an asynchronous test like {@link TestRunner#runAsyncTest(String, int, AsyncTest)} */
+    public static void runAsyncTest(String testName, int numRuns, AsyncTest test) {
+        defaultRunner.runAsyncTest(testName, numRuns, test);
+    }
 
-            if (!result.didPass()) {
-                failures.add(result.asFailure());
-            }
-        }
+    /** Sends the report of every test run through TestFramework to the reporter as well */
+    public static void addReporter(TestReporter reporter) {
+        defaultRunner.addReporter(reporter);
+    }
 
-        long endTimeNanos = System.nanoTime();
-        double totalRuntimeSeconds = (endTimeNanos - startTimeNanos) / 1_000_000_000.0;
+    public static void removeReporter(TestReporter reporter) {
+        defaultRunner.removeReporter(reporter);
+    }
 
-        String runTimeInfo = MAGENTA.format("%.3fs", totalRuntimeSeconds);
+    /** Compares every test run through TestFramework with the baseline */
+    public static void compareWith(Baseline baseline) {
+        defaultRunner.compareWith(baseline);
+    }
 
-        if (numRuns > 1) {
-            runTimeInfo += String.format(
-                " (%s per run * %s runs)", MAGENTA.format("%.3fs", totalRuntimeSeconds / numRuns),
-                MAGENTA.format("%d", numRuns)
-            );
-        }
+    /** Shows the progress of every test run through TestFramework on the dashboard */
+    public static void showProgress(ProgressDashboard dashboard) {
+        defaultRunner.showProgress(dashboard);
+    }
 
-        if (failures.isEmpty()) {
-            System.out.printf("%s %s in %s%n", GREEN.format("Passed test"), testName, runTimeInfo);
-        }
-        else {
-            System.out.printf(
-                "%s %s in %s:%n",
-                numRuns == 1 ? RED.format("Failed test") : RED.format(
-                    "Failed %d/%d runs for test",
-                    failures.size(), numRuns
-                ), testName, runTimeInfo
-            );
-
-            // Only print up to a max threshold of errors
-            int numFailuresPrinted = 0;
-            for (int i = 0; i < failures.size(); i++) {
-                TestResult.Failure testResult = failures.get(i);
-                String input = testResult.input();
-
-                System.out.printf(RED.format(
-                    "%s %s%s%n",
-                    (i == failures.size() - 1 ? "└" : "├") + "─".repeat(indentation),
-                    input == null ? "" : RED.format("With input %s: ", CYAN.format(input)),
-                    testResult.message()
-                ));
-
-                numFailuresPrinted++;
-
-                if (numFailuresPrinted == maxFailuresToPrint) {
-                    System.out.println(RED.format("└%s %s", "─".repeat(indentation), (failures.size() - maxFailuresToPrint) + " more failures..."));
-                    break;
-                }
+    /** Sends the metrics of every test run through TestFramework to the listener */
+    public static void addMetricsListener(MetricsListener listener) {
+        defaultRunner.addMetricsListener(listener);
+    }
+
+    public static void removeMetricsListener(MetricsListener listener) {
+        defaultRunner.removeMetricsListener(listener);
+    }
+
+    /**
+     * Runs a test like {@link #runTest(String, int, int, Test)}, but returns the results instead
+     * of printing them. Only the failures which would be printed are kept.
+     */
+    public static TestReport execute(String testName, int numRuns, int numWorkers, Test test) {
+        return execute(
+            testName, numRuns, numWorkers,
+            FailureCollector.keepFirst(defaultRunner.settings().maxFailuresToPrint()), test
+        );
+    }
+
+    /**
+     * Runs a test like {@link #execute(String, int, int, Test)}, keeping failures in the given
+     * collector, which must be empty.
+     */
+    public static TestReport execute(String testName, int numRuns, int numWorkers,
+                                     FailureCollector failures, Test test) {
+        return defaultRunner.execute(testName, numRuns, numWorkers, failures, test);
+    }
+
+    /** Repeats a single run of a test like {@link TestRunner#replay(String, long, Test)} */
+    public static void replay(String testName, long seed, Test test) {
+        defaultRunner.replay(testName, seed, test);
+    }
+
+    /** Repeats run runIndex of a test like {@link TestRunner#replay(String, int, long, Test)} */
+    public static void replay(String testName, int runIndex, long seed, Test test) {
+        defaultRunner.replay(testName, runIndex, seed, test);
+    }
+
+    public static void printReport(TestReport report) {
+        defaultRunner.printReport(report);
+    }
+
+    static TestRunner defaultRunner() {
+        return defaultRunner;
+    }
+
+    static long currentThreadCpuNanos() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0;
+    }
+
+    /** Bytes allocated so far by the current thread, or -1 if the JVM cannot tell */
+    static long currentThreadAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotSpotThreads =
+                (com.sun.management.ThreadMXBean) threads;
+            if (hotSpotThreads.isThreadAllocatedMemorySupported()
+                && hotSpotThreads.isThreadAllocatedMemoryEnabled()) {
+                return hotSpotThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
             }
         }
+        return -1;
     }
 }
 
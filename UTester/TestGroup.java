@@ -0,0 +1,189 @@
+package UTester;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static UTester.TerminalStyle.*;
+
+/**
+ * A named set of tests which are run and displayed together. Independent tests in a group are run
+ * concurrently, but their reports are always printed one test at a time in the order the tests
+ * were added.
+ */
+public class TestGroup {
+    private final String groupName;
+    private final TestRunner runner;
+    private final List<Entry> tests = new ArrayList<>();
+    private ResultCache resultCache;
+
+    public TestGroup(String groupName) {
+        this(groupName, TestFramework.defaultRunner());
+    }
+
+    /** Creates a group whose tests are run and reported by the given runner */
+    public TestGroup(String groupName, TestRunner runner) {
+        this.groupName = groupName;
+        this.runner = runner;
+    }
+
+    /**
+     * Skips tests which passed the last time they were run and have not changed since, and runs
+     * tests which failed last time before the others. The cache is saved after every run.
+     */
+    public TestGroup withResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+        return this;
+    }
+
+    public TestGroup add(String testName, Test test) {
+        return add(testName, 1, test);
+    }
+
+    public TestGroup add(String testName, int numRuns, Test test) {
+        tests.add(new Entry(testName, numRuns, test, new Class<?>[0]));
+        return this;
+    }
+
+    /**
+     * Adds a test whose result also depends on the given classes, so that a
+     * {@link UTester.ResultCache} reruns it when any of them change.
+     */
+    public TestGroup add(String testName, int numRuns, Test test, Class<?>... dependencies) {
+        tests.add(new Entry(testName, numRuns, test, dependencies));
+        return this;
+    }
+
+    public List<TestReport> run() {
+        return run(Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Runs every test in the group on up to numThreads threads and prints a summary */
+    public List<TestReport> run(int numThreads) {
+        runner.printLine(() -> CYAN.format("Running test group %s", groupName));
+
+        List<Entry> toRun = selectTests();
+        List<TestReport> reports = new ArrayList<>(toRun.size());
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(numThreads, toRun.size()))
+        );
+        long startTimeNanos = System.nanoTime();
+
+        try {
+            List<Future<TestReport>> futures = new ArrayList<>(toRun.size());
+            for (Entry entry : toRun) {
+                futures.add(executor.submit(
+                    () -> runner.execute(entry.testName, entry.numRuns, entry.test)
+                ));
+            }
+
+            // Print each report as soon as it and every report before it have finished
+            for (int i = 0; i < futures.size(); i++) {
+                TestReport report = futures.get(i).get();
+                runner.publish(report);
+                reports.add(report);
+                if (resultCache != null) {
+                    resultCache.record(report, toRun.get(i).key);
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for test group", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Test threw an exception", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        long endTimeNanos = System.nanoTime();
+        if (resultCache != null) {
+            resultCache.save();
+        }
+        printSummary(reports, tests.size() - toRun.size(), endTimeNanos - startTimeNanos);
+
+        return reports;
+    }
+
+    /** The tests which need to run, with the ones that failed last time first */
+    private List<Entry> selectTests() {
+        if (resultCache == null) {
+            return tests;
+        }
+
+        List<Entry> failedBefore = new ArrayList<>();
+        List<Entry> others = new ArrayList<>();
+        for (Entry entry : tests) {
+            entry.key = ResultCache.key(
+                entry.test, entry.numRuns, runner.settings(), entry.dependencies
+            );
+            if (resultCache.passedBefore(entry.testName, entry.key)) {
+                runner.printLine(() -> GREEN.format(
+                    "Skipped test %s (passed previously, unchanged)", entry.testName
+                ));
+            }
+            else if (resultCache.failedBefore(entry.testName)) {
+                failedBefore.add(entry);
+            }
+            else {
+                others.add(entry);
+            }
+        }
+
+        failedBefore.addAll(others);
+        return failedBefore;
+    }
+
+    private void printSummary(List<TestReport> reports, int numSkipped, long wallNanos) {
+        int numPassed = 0;
+        long cpuNanos = 0;
+        for (TestReport report : reports) {
+            numPassed += report.didPass() ? 1 : 0;
+            cpuNanos += report.cpuNanos();
+        }
+
+        double wallSeconds = wallNanos / 1_000_000_000.0;
+        double cpuSeconds = cpuNanos / 1_000_000_000.0;
+
+        int numTestsPassed = numPassed;
+        runner.printLine(() -> String.format(
+            "%s %s in %s wall time (%s CPU time, %s speedup)",
+            (numTestsPassed == reports.size() ? GREEN : RED).format(
+                "Passed %d/%d tests in group", numTestsPassed, reports.size()
+            ),
+            groupName,
+            MAGENTA.format("%.3fs", wallSeconds),
+            MAGENTA.format("%.3fs", cpuSeconds),
+            MAGENTA.format("%.2fx", wallSeconds == 0 ? 1 : cpuSeconds / wallSeconds)
+        ));
+        if (numSkipped > 0) {
+            runner.printLine(() -> GREEN.format("Skipped %d unchanged tests", numSkipped));
+        }
+    }
+
+    private static final class Entry {
+        private final String testName;
+        private final int numRuns;
+        private final Test test;
+        private final Class<?>[] dependencies;
+        private long key;
+
+        private Entry(String testName, int numRuns, Test test, Class<?>[] dependencies) {
+            this.testName = testName;
+            this.numRuns = numRuns;
+            this.test = test;
+            this.dependencies = dependencies;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package UTester;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measurements taken while a test ran: how long each run took, how much memory the runs
+ * allocated, how much garbage collection happened meanwhile and how much CPU time was used.
+ */
+public final class TestMetrics {
+    private final LatencyHistogram runDurations;
+    private final long allocatedBytes;
+    private final long gcCount;
+    private final long gcTimeMillis;
+    private final long cpuNanos;
+    private final long elapsedNanos;
+
+    TestMetrics(LatencyHistogram runDurations, long allocatedBytes, long gcCount,
+                long gcTimeMillis, long cpuNanos, long elapsedNanos) {
+        this.runDurations = runDurations;
+        this.allocatedBytes = allocatedBytes;
+        this.gcCount = gcCount;
+        this.gcTimeMillis = gcTimeMillis;
+        this.cpuNanos = cpuNanos;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /** The wall-clock duration of every completed run */
+    public LatencyHistogram runDurations() {
+        return runDurations;
+    }
+
+    /**
+     * Bytes allocated by the threads which executed the runs, or -1 if the JVM cannot count
+     * allocations per thread
+     */
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Garbage collections anywhere in the JVM while the test ran. Tests running concurrently
+     * share the same collections.
+     */
+    public long gcCount() {
+        return gcCount;
+    }
+
+    public long gcTimeMillis() {
+        return gcTimeMillis;
+    }
+
+    public long cpuNanos() {
+        return cpuNanos;
+    }
+
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /** CPU time divided by wall time, which is close to the number of busy workers */
+    public double cpuUtilization() {
+        return elapsedNanos == 0 ? 0 : (double) cpuNanos / elapsedNanos;
+    }
+
+    /** Collections so far by every garbage collector in the JVM */
+    static long totalGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    static long totalGcTimeMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+}
@@ -0,0 +1,27 @@
+package UTester;
+
+/**
+ * The latest {@link UTester.TestMetrics} of one test, as shown in JMX consoles such as
+ * JConsole. Registered by {@link UTester.JmxMetricsListener}.
+ */
+public interface TestMetricsMXBean {
+    long getRunCount();
+
+    double getMeanRunNanos();
+
+    long getMedianRunNanos();
+
+    long getP99RunNanos();
+
+    long getMaxRunNanos();
+
+    long getAllocatedBytes();
+
+    long getGcCount();
+
+    long getGcTimeMillis();
+
+    long getCpuNanos();
+
+    long getElapsedNanos();
+}
@@ -0,0 +1,72 @@
+package UTester;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Counts the completed runs and failures of one test while it runs, for a
+ * {@link UTester.ProgressDashboard} to sample. Every worker counts into its own slot, and each slot
+ * is only written by one thread at a time, so a count is a plain increment published with a
+ * release store, with no atomic update or lock.
+ */
+final class TestProgress {
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+    // Slots are 128 bytes apart, so workers on different cores never write the same cache line
+    private static final int STRIDE = 16;
+
+    private final String testName;
+    private final int numRunsPlanned;
+    private final boolean isColorEnabled;
+    // The runs of slot i are at i * STRIDE, and its failures right after them
+    private final long[] slots;
+
+    // Only used by the dashboard thread, to smooth the rate between frames
+    long lastRunsCompleted = 0;
+    long lastSampleNanos = System.nanoTime();
+    double runsPerSecond = 0;
+
+    TestProgress(String testName, int numRunsPlanned, int numSlots, boolean isColorEnabled) {
+        this.testName = testName;
+        this.numRunsPlanned = numRunsPlanned;
+        this.isColorEnabled = isColorEnabled;
+        this.slots = new long[Math.max(1, numSlots) * STRIDE];
+    }
+
+    /** Counts a completed run. Must not be called by two threads at once for the same slot */
+    void runCompleted(int slot, boolean didFail) {
+        int index = slot * STRIDE;
+        SLOTS.setRelease(slots, index, slots[index] + 1);
+        if (didFail) {
+            SLOTS.setRelease(slots, index + 1, slots[index + 1] + 1);
+        }
+    }
+
+    String testName() {
+        return testName;
+    }
+
+    int numRunsPlanned() {
+        return numRunsPlanned;
+    }
+
+    /** Returns whether the runner of the test has color turned on */
+    boolean isColorEnabled() {
+        return isColorEnabled;
+    }
+
+    long runsCompleted() {
+        return sum(0);
+    }
+
+    long failures() {
+        return sum(1);
+    }
+
+    private long sum(int offset) {
+        long total = 0;
+        for (int i = offset; i < slots.length; i += STRIDE) {
+            total += (long) SLOTS.getAcquire(slots, i);
+        }
+        return total;
+    }
+}
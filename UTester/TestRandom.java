@@ -0,0 +1,89 @@
+package UTester;
+
+import java.util.SplittableRandom;
+
+/**
+ * Randomness for the run in progress. The runner gives every run its own seed, derived from the
+ * root seed in {@link UTester.TestSettings} and the index of the run, and a failing run reports
+ * its index and seed so that exactly that run can be repeated with
+ * {@link UTester.TestRunner#replay(String, int, long, Test)}.
+ * <pre>
+ * runner.runTest("sorts random arrays", 1000, () -&gt; {
+ *     int[] array = TestRandom.current().ints(10).toArray();
+ *     ...
+ * });
+ * </pre>
+ * Randomness drawn elsewhere, such as from {@link Math#random()}, cannot be replayed.
+ */
+public final class TestRandom {
+    private static final ThreadLocal<Run> currentRun = ThreadLocal.withInitial(Run::new);
+
+    private TestRandom() {}
+
+    /**
+     * The random number generator of the run in progress on this thread. Outside of a run, a
+     * generator with an arbitrary seed.
+     */
+    public static SplittableRandom current() {
+        return currentRun.get().random();
+    }
+
+    /** The seed of the run in progress on this thread */
+    public static long seed() {
+        Run run = currentRun.get();
+        run.isSeedUsed = true;
+        return run.seed;
+    }
+
+    /**
+     * The seed of the run with the given index. Seeds are spread like the splits of a
+     * {@link SplittableRandom}, so neighbouring runs get unrelated values.
+     */
+    static long seedForRun(long rootSeed, int runIndex) {
+        long x = rootSeed + (runIndex + 1L) * 0x9e3779b97f4a7c15L;
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+
+    static long newRootSeed() {
+        return new SplittableRandom().nextLong();
+    }
+
+    /** The holder for this thread, which runners keep so that starting a run is cheap */
+    static Run currentRun() {
+        return currentRun.get();
+    }
+
+    static final class Run {
+        private int index = 0;
+        private long seed = newRootSeed();
+        // Only created when a run asks for it, so tests without randomness allocate nothing
+        private SplittableRandom random;
+        private boolean isSeedUsed;
+
+        void start(int index, long seed) {
+            this.index = index;
+            this.seed = seed;
+            this.random = null;
+            this.isSeedUsed = false;
+        }
+
+        /** Whether the run asked for its generator or its seed, so that replaying it matters */
+        boolean wasUsed() {
+            return random != null || isSeedUsed;
+        }
+
+        /** The index of the run among all runs of its test */
+        int index() {
+            return index;
+        }
+
+        private SplittableRandom random() {
+            if (random == null) {
+                random = new SplittableRandom(seed);
+            }
+            return random;
+        }
+    }
+}
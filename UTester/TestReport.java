@@ -0,0 +1,122 @@
+package UTester;
+
+import java.util.Collections;
+import java.util.List;
+
+public final class TestReport {
+    private final String testName;
+    private final int numRunsPlanned;
+    private final int numRuns;
+    private final List<TestResult.Failure> failures;
+    private final int numFailures;
+    private final long elapsedNanos;
+    private final long cpuNanos;
+    private final String output;
+    private final String stopReason;
+    private final TestMetrics metrics;
+    private final BaselineComparison baselineComparison;
+
+    TestReport(String testName, int numRunsPlanned, int numRuns, FailureCollector failures,
+               long elapsedNanos, long cpuNanos, String output, String stopReason,
+               TestMetrics metrics) {
+        this(
+            testName, numRunsPlanned, numRuns, failures.failures(), failures.numFailures(),
+            elapsedNanos, cpuNanos, output, stopReason, metrics
+        );
+    }
+
+    /** Recreates a report received from another JVM, which sends its kept failures as a list */
+    TestReport(String testName, int numRunsPlanned, int numRuns,
+               List<TestResult.Failure> failures, int numFailures, long elapsedNanos,
+               long cpuNanos, String output, String stopReason, TestMetrics metrics) {
+        this.testName = testName;
+        this.numRunsPlanned = numRunsPlanned;
+        this.numRuns = numRuns;
+        this.failures = Collections.unmodifiableList(failures);
+        this.numFailures = numFailures;
+        this.elapsedNanos = elapsedNanos;
+        this.cpuNanos = cpuNanos;
+        this.output = output;
+        this.stopReason = stopReason;
+        this.metrics = metrics;
+        this.baselineComparison = null;
+    }
+
+    private TestReport(TestReport report, BaselineComparison baselineComparison) {
+        this.testName = report.testName;
+        this.numRunsPlanned = report.numRunsPlanned;
+        this.numRuns = report.numRuns;
+        this.failures = report.failures;
+        this.numFailures = report.numFailures;
+        this.elapsedNanos = report.elapsedNanos;
+        this.cpuNanos = report.cpuNanos;
+        this.output = report.output;
+        this.stopReason = report.stopReason;
+        this.metrics = report.metrics;
+        this.baselineComparison = baselineComparison;
+    }
+
+    TestReport withBaselineComparison(BaselineComparison baselineComparison) {
+        return new TestReport(this, baselineComparison);
+    }
+
+    public boolean didPass() {
+        return numFailures == 0;
+    }
+
+    public String testName() {
+        return testName;
+    }
+
+    /** The number of runs which were requested */
+    public int numRunsPlanned() {
+        return numRunsPlanned;
+    }
+
+    /** The number of runs which actually ran, which is lower if the test was stopped early */
+    public int numRuns() {
+        return numRuns;
+    }
+
+    /** The failures which were kept, which may be fewer than {@link #numFailures()} */
+    public List<TestResult.Failure> failures() {
+        return failures;
+    }
+
+    public int numFailures() {
+        return numFailures;
+    }
+
+    /** Wall-clock time taken by all runs of the test */
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /** CPU time summed over every thread that executed runs of the test */
+    public long cpuNanos() {
+        return cpuNanos;
+    }
+
+    /** Everything the test printed to System.out and System.err while it ran */
+    public String output() {
+        return output;
+    }
+
+    /** Why the test was stopped before all planned runs ran, or null if it was not */
+    public String stopReason() {
+        return stopReason;
+    }
+
+    /** Run durations, allocations and garbage collection measured while the test ran */
+    public TestMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * How this run compares with the baseline given to
+     * {@link UTester.TestRunner#compareWith(Baseline)}, or null if there was nothing to compare
+     */
+    public BaselineComparison baselineComparison() {
+        return baselineComparison;
+    }
+}
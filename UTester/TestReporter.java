@@ -0,0 +1,12 @@
+package UTester;
+
+/**
+ * Receives the report of every test as soon as the test finishes, for example to write the
+ * results to a file in a machine-readable format. Reporters may be called from several threads.
+ */
+public interface TestReporter extends AutoCloseable {
+    void testFinished(TestReport report);
+
+    @Override
+    default void close() {}
+}
@@ -1,5 +1,8 @@
 package UTester;
 
+import java.time.Duration;
+import java.util.function.Supplier;
+
 public abstract class TestResult {
     // Private constructor ensures that only the static inner classes may extend this class
     // The goal is to emulate a sum type, where a TestResult may be a Success (empty class) or a
@@ -15,14 +18,36 @@ public abstract class TestResult {
         return (Failure) this;
     }
 
+    // Success holds no state, so every passing run can share one instance instead of allocating
+    private static final Success SUCCESS = new Success();
+
     public static Success success() {
-        return new Success();
+        return SUCCESS;
     }
 
     public static Failure failure() {
         return new Failure();
     }
 
+    /** Creates the failure of a run which was abandoned for taking longer than the limit */
+    public static Failure timeout(Duration limit) {
+        return new Failure(
+            () -> String.format(
+                "Timed out after %s", TerminalStyle.CYAN.format("%dms", limit.toMillis())
+            ),
+            null, true, null, null
+        );
+    }
+
+    /** Recreates a failure received from another JVM, whose message is already formatted */
+    static Failure failure(String message, String input, boolean isTimeout, Integer runIndex,
+                           Long seed) {
+        return new Failure(
+            message == null ? null : () -> message, input == null ? null : () -> input,
+            isTimeout, runIndex, seed
+        );
+    }
+
     public static final class Success extends TestResult {
         private Success() {}
 
@@ -33,16 +58,27 @@ public abstract class TestResult {
     }
 
     public static final class Failure extends TestResult {
-        private final String message;
-        private final String input;
+        // Messages and inputs are only formatted when first asked for, since most failures of a
+        // test which fails many times are counted but never printed
+        private final Supplier<String> message;
+        private final Supplier<String> input;
+        private final boolean isTimeout;
+        private final Integer runIndex;
+        private final Long seed;
+        private String formattedMessage;
+        private String formattedInput;
 
         private Failure() {
-            this(null, null);
+            this(null, null, false, null, null);
         }
 
-        private Failure(String message, String input) {
+        private Failure(Supplier<String> message, Supplier<String> input, boolean isTimeout,
+                        Integer runIndex, Long seed) {
             this.message = message;
             this.input = input;
+            this.isTimeout = isTimeout;
+            this.runIndex = runIndex;
+            this.seed = seed;
         }
 
         @Override
@@ -51,19 +87,76 @@ public abstract class TestResult {
         }
 
         public Failure withMessage(String message) {
-            return new Failure(message, input);
+            return withLazyMessage(message == null ? null : () -> message);
+        }
+
+        /** Sets a message which is only formatted if the failure is printed */
+        public Failure withLazyMessage(Supplier<String> message) {
+            return new Failure(message, input, isTimeout, runIndex, seed);
         }
 
         public Failure withInput(String input) {
-            return new Failure(message, input);
+            return withLazyInput(input == null ? null : () -> input);
+        }
+
+        /** Sets an input which is only formatted if the failure is printed */
+        public Failure withLazyInput(Supplier<String> input) {
+            return new Failure(message, input, isTimeout, runIndex, seed);
+        }
+
+        /** Whether the run was abandoned for taking too long, rather than failing a check */
+        public boolean isTimeout() {
+            return isTimeout;
+        }
+
+        /**
+         * Marks the failure as coming from the run with the given index and seed, which is null
+         * if the run drew no randomness
+         */
+        Failure withRun(int runIndex, Long seed) {
+            return new Failure(message, input, isTimeout, runIndex, seed);
+        }
+
+        /**
+         * The index of the failing run among the runs of its test, or null if the failure did
+         * not come from a runner. Together with the seed, it lets
+         * {@link UTester.TestRunner#replay(String, int, long, Test)} repeat the run.
+         */
+        public Integer runIndex() {
+            return runIndex;
+        }
+
+        /**
+         * The seed of the {@link UTester.TestRandom} of the failing run, or null if the failure
+         * did not come from a runner or the run drew no randomness
+         */
+        public Long seed() {
+            return seed;
         }
 
         public String message() {
-            return message;
+            if (formattedMessage == null && message != null) {
+                formattedMessage = format(message);
+            }
+            return formattedMessage;
         }
 
         public String input() {
-            return input;
+            if (formattedInput == null && input != null) {
+                formattedInput = format(input);
+            }
+            return formattedInput;
+        }
+
+        private static String format(Supplier<String> supplier) {
+            try {
+                return supplier.get();
+            }
+            catch (RuntimeException e) {
+                // Formatting runs long after the test did, so report the problem instead of
+                // throwing from whatever is printing the failure
+                return "Could not format failure: " + e;
+            }
         }
     }
-}
\ No newline at end of file
+}
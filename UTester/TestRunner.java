@@ -0,0 +1,397 @@
+package UTester;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static UTester.TerminalStyle.*;
+
+/**
+ * Runs tests and reports their results according to its {@link TestSettings}. Runners share no
+ * state with each other, so differently configured runners can be used side by side.
+ * {@link TestFramework} is a shortcut to a runner with the default settings.
+ */
+public class TestRunner {
+    private static final int indentation = 1;
+
+    private final TestSettings settings;
+    private final List<TestReporter> reporters = new CopyOnWriteArrayList<>();
+    private final List<MetricsListener> metricsListeners = new CopyOnWriteArrayList<>();
+    private volatile Baseline baseline;
+    private volatile ProgressDashboard dashboard;
+
+    public TestRunner() {
+        this(new TestSettings());
+    }
+
+    public TestRunner(TestSettings settings) {
+        this.settings = settings;
+    }
+
+    public TestSettings settings() {
+        return settings;
+    }
+
+    public void runTest(String testName, Test test) {
+        runTest(testName, 1, test);
+    }
+
+    /**
+     * Runs a test numRuns times and prints the results. If the parallelism setting is above 1,
+     * the runs are split into contiguous shards which are executed by that many threads at once,
+     * so the test must be safe to run from several threads concurrently. Failures are reported in
+     * run order, exactly as if the runs had been executed sequentially.
+     */
+    public void runTest(String testName, int numRuns, Test test) {
+        publish(execute(testName, numRuns, test));
+    }
+
+    /**
+     * Runs an asynchronous test numRuns times and prints the results. Up to the maxInFlight
+     * setting of runs are in progress at once, without a thread waiting on each one, and a run
+     * which takes longer than the timeout setting fails without being waited for.
+     */
+    public void runAsyncTest(String testName, int numRuns, AsyncTest test) {
+        try {
+            publish(executeAsync(testName, numRuns, test).join());
+        }
+        catch (CompletionException e) {
+            // Rethrow unchecked exceptions unwrapped, as a synchronous test would have done
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Test run threw an exception", e.getCause());
+        }
+    }
+
+    /** Sends the report of every test run by this runner to the reporter as well */
+    public void addReporter(TestReporter reporter) {
+        reporters.add(reporter);
+    }
+
+    public void removeReporter(TestReporter reporter) {
+        reporters.remove(reporter);
+    }
+
+    /**
+     * Sends the metrics of every test run by this runner to the listener, for example a
+     * {@link UTester.JmxMetricsListener}
+     */
+    public void addMetricsListener(MetricsListener listener) {
+        metricsListeners.add(listener);
+    }
+
+    public void removeMetricsListener(MetricsListener listener) {
+        metricsListeners.remove(listener);
+    }
+
+    /**
+     * Compares every test with its results in the baseline, or stops comparing if it is null.
+     * Slowdowns and allocation increases are shown with the test's report, and passed on to
+     * reporters in {@link TestReport#baselineComparison()}.
+     */
+    public void compareWith(Baseline baseline) {
+        this.baseline = baseline;
+    }
+
+    /**
+     * Shows the progress of every test run by this runner on the dashboard while it runs, or
+     * stops showing it if the dashboard is null. Printed reports appear above the progress.
+     */
+    public void showProgress(ProgressDashboard dashboard) {
+        this.dashboard = dashboard;
+    }
+
+    /** Prints a report, and passes it on to every added reporter and metrics listener */
+    public void publish(TestReport report) {
+        Baseline currentBaseline = baseline;
+        if (currentBaseline != null && report.baselineComparison() == null) {
+            BaselineComparison comparison = currentBaseline.compare(report);
+            report = comparison == null ? report : report.withBaselineComparison(comparison);
+        }
+
+        printReport(report);
+        for (TestReporter reporter : reporters) {
+            reporter.testFinished(report);
+        }
+        if (report.metrics() != null) {
+            for (MetricsListener listener : metricsListeners) {
+                listener.testMeasured(report.testName(), report.metrics());
+            }
+        }
+    }
+
+    /**
+     * Runs a test like {@link #runTest(String, int, Test)}, but returns the results instead of
+     * printing them. Only the failures which would be printed are kept.
+     */
+    public TestReport execute(String testName, int numRuns, Test test) {
+        return execute(
+            testName, numRuns, FailureCollector.keepFirst(settings.maxFailuresToPrint()), test
+        );
+    }
+
+    /**
+     * Runs a test like {@link #execute(String, int, Test)}, keeping failures in the given
+     * collector, which must be empty.
+     */
+    public TestReport execute(String testName, int numRuns, FailureCollector failures,
+                              Test test) {
+        return execute(testName, numRuns, settings.parallelism(), failures, test);
+    }
+
+    /**
+     * Repeats a single run of a test, using the seed printed next to one of its failures. Only
+     * randomness drawn from {@link UTester.TestRandom} is repeated, and the run is run 0.
+     */
+    public void replay(String testName, long seed, Test test) {
+        replay(testName, 0, seed, test);
+    }
+
+    /**
+     * Repeats run runIndex of a test, using the run and seed printed next to one of its failures.
+     * Tests which depend on the index of their run, such as those of a {@link UTester.Table},
+     * need both to repeat the run.
+     */
+    public void replay(String testName, int runIndex, long seed, Test test) {
+        publish(executeReplay(testName, runIndex, seed, test));
+    }
+
+    public TestReport executeReplay(String testName, long seed, Test test) {
+        return executeReplay(testName, 0, seed, test);
+    }
+
+    public TestReport executeReplay(String testName, int runIndex, long seed, Test test) {
+        if (runIndex < 0) {
+            throw new IllegalArgumentException("Run index must not be negative");
+        }
+        FailureCollector failures = FailureCollector.keepFirst(settings.maxFailuresToPrint());
+        return new TestExecution(test, 1, 1, failures, settings, seed, runIndex).run(testName);
+    }
+
+    /**
+     * Starts the runs of an asynchronous test like {@link #runAsyncTest(String, int, AsyncTest)},
+     * and returns a future of the results instead of printing them. The future completes
+     * exceptionally if a run does, other than by timing out.
+     */
+    public CompletableFuture<TestReport> executeAsync(String testName, int numRuns,
+                                                      AsyncTest test) {
+        FailureCollector failures = FailureCollector.keepFirst(settings.maxFailuresToPrint());
+        ProgressDashboard currentDashboard = dashboard;
+        if (currentDashboard == null) {
+            return new AsyncExecution(test, numRuns, failures, settings, null).start(testName);
+        }
+
+        TestProgress progress = currentDashboard.testStarted(
+            testName, numRuns, 1, settings.isColorEnabled()
+        );
+        return new AsyncExecution(test, numRuns, failures, settings, progress)
+            .start(testName)
+            .whenComplete((report, error) -> currentDashboard.testFinished(progress));
+    }
+
+    TestReport execute(String testName, int numRuns, int numWorkers, FailureCollector failures,
+                       Test test) {
+        ProgressDashboard currentDashboard = dashboard;
+        if (currentDashboard == null) {
+            return new TestExecution(test, numRuns, numWorkers, failures, settings)
+                .run(testName);
+        }
+
+        TestProgress progress = currentDashboard.testStarted(
+            testName, numRuns, numWorkers, settings.isColorEnabled()
+        );
+        try {
+            return new TestExecution(test, numRuns, numWorkers, failures, settings, progress)
+                .run(testName);
+        }
+        finally {
+            currentDashboard.testFinished(progress);
+        }
+    }
+
+    public void printReport(TestReport report) {
+        // Formatted with this runner's color setting, which may differ from other runners'
+        boolean wasColorEnabled = TerminalStyle.useColor(settings.isColorEnabled());
+        try {
+            printReportLines(report);
+        }
+        finally {
+            TerminalStyle.useColor(wasColorEnabled);
+        }
+    }
+
+    /** Prints the timings of a benchmark, through this runner's output and color settings */
+    public void printReport(BenchmarkReport report) {
+        printLine(() -> String.format(
+            "%s %s: %s ± %s per op (%s iterations * %s ops)",
+            CYAN.format("Benchmark"),
+            report.benchmarkName(),
+            MAGENTA.format(BenchmarkReport.formatNanos(report.mean())),
+            MAGENTA.format(BenchmarkReport.formatNanos(report.standardDeviation())),
+            MAGENTA.format("%d", report.iterations()),
+            MAGENTA.format("%d", report.operationsPerIteration())
+        ));
+        printLine(() -> String.format(
+            "└─ min %s, p50 %s, p90 %s, p99 %s, max %s",
+            MAGENTA.format(BenchmarkReport.formatNanos(report.min())),
+            MAGENTA.format(BenchmarkReport.formatNanos(report.percentile(50))),
+            MAGENTA.format(BenchmarkReport.formatNanos(report.percentile(90))),
+            MAGENTA.format(BenchmarkReport.formatNanos(report.percentile(99))),
+            MAGENTA.format(BenchmarkReport.formatNanos(report.max()))
+        ));
+    }
+
+    private void printReportLines(TestReport report) {
+        String testName = report.testName();
+        int numRuns = report.numRuns();
+        List<TestResult.Failure> failures = report.failures();
+        int numFailures = report.numFailures();
+        double totalRuntimeSeconds = report.elapsedNanos() / 1_000_000_000.0;
+
+        String runTimeInfo = MAGENTA.format("%.3fs", totalRuntimeSeconds);
+
+        if (numRuns > 1) {
+            runTimeInfo += String.format(
+                " (%s per run * %s runs)", MAGENTA.format("%.3fs", totalRuntimeSeconds / numRuns),
+                MAGENTA.format("%d", numRuns)
+            );
+        }
+
+        if (numFailures == 0) {
+            printf("%s %s in %s%n", GREEN.format("Passed test"), testName, runTimeInfo);
+            printStopReason(report);
+            printBaselineComparison(report);
+            printOutput(report.output());
+        }
+        else {
+            printf(
+                "%s %s in %s:%n",
+                numRuns == 1 ? RED.format("Failed test") : RED.format(
+                    "Failed %d/%d runs for test",
+                    numFailures, numRuns
+                ), testName, runTimeInfo
+            );
+            printStopReason(report);
+            printBaselineComparison(report);
+            printOutput(report.output());
+
+            // Only print up to a max threshold of errors. Failure messages are formatted here,
+            // so failures which are never printed never pay for formatting
+            int numFailuresPrinted = Math.min(failures.size(), settings.maxFailuresToPrint());
+            for (int i = 0; i < numFailuresPrinted; i++) {
+                TestResult.Failure testResult = failures.get(i);
+                String input = testResult.input();
+
+                // The line is already formatted, and messages may contain % signs of their own
+                print(RED.format(
+                    "%s %s%s%s%n",
+                    (i == numFailures - 1 ? "└" : "├") + "─".repeat(indentation),
+                    input == null ? "" : RED.format("With input %s: ", CYAN.format(input)),
+                    testResult.message(),
+                    testResult.seed() == null ? "" : MAGENTA.format(
+                        " (run %d, seed %d)", testResult.runIndex(), testResult.seed()
+                    )
+                ));
+            }
+
+            if (numFailuresPrinted < numFailures) {
+                println(RED.format("└%s %s", "─".repeat(indentation), (numFailures - numFailuresPrinted) + " more failures..."));
+            }
+        }
+    }
+
+    private void printStopReason(TestReport report) {
+        if (report.stopReason() != null) {
+            printf(
+                "│%s %s%n", " ".repeat(indentation), MAGENTA.format(
+                    "%s, skipped %d/%d runs", report.stopReason(),
+                    report.numRunsPlanned() - report.numRuns(), report.numRunsPlanned()
+                )
+            );
+        }
+    }
+
+    private void printBaselineComparison(TestReport report) {
+        BaselineComparison comparison = report.baselineComparison();
+        if (comparison == null) {
+            return;
+        }
+
+        if (comparison.isSlower()) {
+            printf(
+                "│%s %s%n", " ".repeat(indentation), RED.format(
+                    "Slower than baseline: median %s per run, was %s (%s, p = %s)",
+                    MAGENTA.format(BenchmarkReport.formatNanos(comparison.medianNanos())),
+                    MAGENTA.format(BenchmarkReport.formatNanos(comparison.baselineMedianNanos())),
+                    MAGENTA.format("%+.1f%%", 100 * (comparison.medianRatio() - 1)),
+                    MAGENTA.format("%.2g", comparison.pValue())
+                )
+            );
+        }
+        if (comparison.allocatesMore()) {
+            printf(
+                "│%s %s%n", " ".repeat(indentation), RED.format(
+                    "Allocates more than baseline: %s per run, was %s",
+                    MAGENTA.format("%.1f bytes", comparison.bytesPerRun()),
+                    MAGENTA.format("%.1f bytes", comparison.baselineBytesPerRun())
+                )
+            );
+        }
+    }
+
+    private void printOutput(String output) {
+        if (output.isEmpty()) {
+            return;
+        }
+
+        // Show what the test printed underneath it, so it is clear which test printed what
+        String[] lines = output.split("\\R");
+        int numLinesPrinted = Math.min(lines.length, settings.maxOutputLinesToPrint());
+        for (int i = 0; i < numLinesPrinted; i++) {
+            printf("│%s %s%n", " ".repeat(indentation), lines[i]);
+        }
+
+        if (numLinesPrinted < lines.length) {
+            printf(
+                "│%s %s%n", " ".repeat(indentation),
+                CYAN.format("%d more lines of output...", lines.length - numLinesPrinted)
+            );
+        }
+    }
+
+    /** Prints a line which is formatted with this runner's color setting */
+    void printLine(Supplier<String> line) {
+        boolean wasColorEnabled = TerminalStyle.useColor(settings.isColorEnabled());
+        try {
+            println(line.get());
+        }
+        finally {
+            TerminalStyle.useColor(wasColorEnabled);
+        }
+    }
+
+    /** Prints a literal format string filled in with args. Formatted text goes to println */
+    private void printf(String format, Object... args) {
+        print(String.format(format, args));
+    }
+
+    private void println(String text) {
+        print(text + System.lineSeparator());
+    }
+
+    private void print(String text) {
+        ProgressDashboard currentDashboard = dashboard;
+        if (currentDashboard == null) {
+            settings.output().print(text);
+        }
+        else {
+            currentDashboard.printAbove(() -> settings.output().print(text));
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package UTester;
+
+import java.io.PrintStream;
+import java.time.Duration;
+
+/**
+ * Settings for a {@link TestRunner}. Settings are immutable, so changing a setting returns new
+ * settings, and settings can safely be shared between runners.
+ */
+public final class TestSettings {
+    private final int parallelism;
+    private final PrintStream output;
+    private final boolean isColorEnabled;
+    private final int maxFailuresToPrint;
+    private final int maxOutputLinesToPrint;
+    private final Duration timeout;
+    private final Duration testTimeout;
+    private final int maxFailures;
+    private final Long seed;
+    private final int maxInFlight;
+
+    public TestSettings() {
+        this(1, null, true, 3, 10, null, null, Integer.MAX_VALUE, null, 64);
+    }
+
+    private TestSettings(int parallelism, PrintStream output, boolean isColorEnabled,
+                         int maxFailuresToPrint, int maxOutputLinesToPrint, Duration timeout,
+                         Duration testTimeout, int maxFailures, Long seed, int maxInFlight) {
+        this.parallelism = parallelism;
+        this.output = output;
+        this.isColorEnabled = isColorEnabled;
+        this.maxFailuresToPrint = maxFailuresToPrint;
+        this.maxOutputLinesToPrint = maxOutputLinesToPrint;
+        this.timeout = timeout;
+        this.testTimeout = testTimeout;
+        this.maxFailures = maxFailures;
+        this.seed = seed;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /** Sets how many threads the runs of a single test are split between */
+    public TestSettings withParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        return new TestSettings(
+            parallelism, output, isColorEnabled, maxFailuresToPrint, maxOutputLinesToPrint, timeout,
+            testTimeout, maxFailures, seed, maxInFlight
+        );
+    }
+
+    /** Sets where reports are printed, instead of System.out */
+    public TestSettings withOutput(PrintStream output) {
+        return new TestSettings(
+            parallelism, output, isColorEnabled, maxFailuresToPrint, maxOutputLinesToPrint, timeout,
+            testTimeout, maxFailures, seed, maxInFlight
+        );
+    }
+
+    public TestSettings withColor(boolean isColorEnabled) {
+        return new TestSettings(
+            parallelism, output, isColorEnabled, maxFailuresToPrint, maxOutputLinesToPrint, timeout,
+            testTimeout, maxFailures, seed, maxInFlight
+        );
+    }
+
+    /** Sets how many failures are kept and printed per test. All failures are still counted. */
+    public TestSettings withMaxFailuresToPrint(int maxFailuresToPrint) {
+        if (maxFailuresToPrint < 0) {
+            throw new IllegalArgumentException("Max failures to print must not be negative");
+        }
+        return new TestSettings(
+            parallelism, output, isColorEnabled, maxFailuresToPrint, maxOutputLinesToPrint, timeout,
+            testTimeout, maxFailures, seed, maxInFlight
+        );
+    }
+
+    public TestSettings withMaxOutputLinesToPrint(int maxOutputLinesToPrint) {
+        if (maxOutputLinesToPrint < 0) {
+            throw new IllegalArgumentException("Max output lines to print must not be negative");
+        }
+        return new TestSettings(
+            parallelism, output, isColorEnabled, maxFailuresToPrint, maxOutputLinesToPrint, timeout,
+            testTimeout, maxFailures, seed, maxInFlight
+        );
+    }
+
+    /**
+     * Sets how long a single run of a test may take, or null for no limit. A run which takes
+     * longer is interrupted and counted as a timeout, and the remaining runs are skipped.
+     */
+    public TestSettings withTimeout(Duration timeout) {
+        return new TestSettings(
+            parallelism, output, isColorEnabled, maxFailuresToPrint, maxOutputLinesToPrint, timeout,
+            testTimeout, maxFailures, seed, maxInFlight
+        );
+    }
+
+    /**
+     * Sets how long all runs of a test may take together, or null for no limit. When the limit
+     * is reached, runs in progress are interrupted and counted as timeouts, and the remaining
+     * runs are skipped.
+     */
+    public TestSettings withTestTimeout(Duration testTimeout) {
+        return new TestSettings(
+            parallelism, output, isColorEnabled, maxFailuresToPrint, maxOutputLinesToPrint, timeout,
+            testTimeout, maxFailures, seed, maxInFlight
+        );
+    }
+
+    /** Stops running a test after this many of its runs have failed */
+    public TestSettings withFailFast(int maxFailures) {
+        if (maxFailures < 1) {
+            throw new IllegalArgumentException("Must allow at least one failure");
+        }
+        return new TestSettings(
+            parallelism, output, isColorEnabled, maxFailuresToPrint, maxOutputLinesToPrint, timeout,
+            testTimeout, maxFailures, seed, maxInFlight
+        );
+    }
+
+    /**
+     * Sets the root seed from which the seed of every run is derived, or null to pick a new root
+     * seed for every test. With a fixed root seed, tests using {@link UTester.TestRandom} draw
+     * the same values in every run with the same index, however the runs are split up.
+     */
+    public TestSettings withSeed(Long seed) {
+        return new TestSettings(
+            parallelism, output, isColorEnabled, maxFailuresToPrint, maxOutputLinesToPrint, timeout,
+            testTimeout, maxFailures, seed, maxInFlight
+        );
+    }
+
+    /** Sets how many runs of an {@link UTester.AsyncTest} may be in progress at once */
+    public TestSettings withMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Must allow at least one run in flight");
+        }
+        return new TestSettings(
+            parallelism, output, isColorEnabled, maxFailuresToPrint, maxOutputLinesToPrint, timeout,
+            testTimeout, maxFailures, seed, maxInFlight
+        );
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    public PrintStream output() {
+        // Looked up on every use, since System.out may be replaced after these settings are made
+        return output == null ? System.out : output;
+    }
+
+    public boolean isColorEnabled() {
+        return isColorEnabled;
+    }
+
+    public int maxFailuresToPrint() {
+        return maxFailuresToPrint;
+    }
+
+    public int maxOutputLinesToPrint() {
+        return maxOutputLinesToPrint;
+    }
+
+    public Duration timeout() {
+        return timeout;
+    }
+
+    public Duration testTimeout() {
+        return testTimeout;
+    }
+
+    public int maxFailures() {
+        return maxFailures;
+    }
+
+    public Long seed() {
+        return seed;
+    }
+
+    public int maxInFlight() {
+        return maxInFlight;
+    }
+}
@@ -0,0 +1,69 @@
+package examples.Allocation;
+
+import UTester.*;
+
+import java.lang.management.ManagementFactory;
+
+public class AllocationTester {
+    private static final int warmupRuns = 100_000;
+    private static final int measuredRuns = 1_000_000;
+
+    // Reading the counter allocates a little itself, so allow for that
+    private static final double counterBytesPerRun = 1;
+    // A builder made by every run is a small object, and expect(R) makes a second one
+    private static final double builderBytes = 32;
+
+    // HotSpot's ThreadMXBean can count the bytes allocated by a thread, which lets us check
+    // that passing test runs do not create any garbage
+    private static final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        TestCaseBuilder<Integer> fourTester = new TestCaseBuilder<Integer>()
+            .withInputString("2 + 2")
+            .expect(() -> 2 + 2);
+        TestCaseBuilder<Integer> fourValueTester = new TestCaseBuilder<Integer>().expect(4);
+
+        // Builders made once and reused by every run allocate nothing
+        Test[] passingTests = {
+            TestResult::success,
+            () -> fourTester.toEqual(4),
+            () -> fourTester.toSatisfy(x -> x % 2 == 0, x -> "Expected an even number"),
+            () -> fourValueTester.toEqual(4, Integer::equals),
+        };
+        for (int t = 0; t < passingTests.length; t++) {
+            measure("Passing run #" + t + " allocates nothing", passingTests[t], 0);
+        }
+
+        // A builder made by every run costs at most the builders themselves, and expect(R)
+        // never adds a capturing lambda on top of them
+        measure(
+            "Passing run with a new builder allocates at most its builders",
+            () -> new TestCaseBuilder<Integer>().expect(4).toEqual(4), 2 * builderBytes
+        );
+    }
+
+    private static void measure(String testName, Test passingTest, double maxBytesPerRun) {
+        TestFramework.runTest(testName, () -> {
+            // Let the JIT compile the test first, so we don't measure one-time setup
+            for (int i = 0; i < warmupRuns; i++) {
+                passingTest.run();
+            }
+
+            long threadId = Thread.currentThread().getId();
+            long startBytes = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < measuredRuns; i++) {
+                passingTest.run();
+            }
+            long endBytes = threads.getThreadAllocatedBytes(threadId);
+
+            double bytesPerRun = (double) (endBytes - startBytes) / measuredRuns;
+            if (bytesPerRun >= maxBytesPerRun + counterBytesPerRun) {
+                return TestResult
+                    .failure()
+                    .withMessage(String.format("Allocated %.2f bytes per run", bytesPerRun));
+            }
+            return TestResult.success();
+        });
+    }
+}
@@ -0,0 +1,47 @@
+package examples.Async;
+
+import UTester.*;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncTester {
+    // Stands in for a remote service, which answers after a delay without holding a thread
+    private static CompletableFuture<Long> remoteSquare(long x, long delayMillis) {
+        Executor later = CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS);
+        return CompletableFuture.supplyAsync(() -> x * x, later);
+    }
+
+    public static void main(String[] args) {
+        TestRunner runner = new TestRunner(new TestSettings()
+            .withMaxInFlight(500)
+            .withTimeout(Duration.ofMillis(200)));
+
+        // Shows runs completed, runs per second and the ETA of each test while it runs
+        try (ProgressDashboard dashboard = ProgressDashboard.start()) {
+            runner.showProgress(dashboard);
+            runTests(runner);
+        }
+    }
+
+    private static void runTests(TestRunner runner) {
+        // 10000 calls of 50ms each, but with 500 in flight the test takes about a second
+        runner.runAsyncTest("Remote square", 10_000, () -> {
+            long x = TestRandom.current().nextInt(1000);
+            return new TestCaseBuilder<Long>()
+                .withInputString(Long.toString(x))
+                .expectAsync(() -> remoteSquare(x, 50))
+                .toEqual(x * x);
+        });
+
+        // Every tenth call is too slow, and fails without the runner waiting for it
+        runner.runAsyncTest("Remote square with slow calls", 100, () -> {
+            long delayMillis = TestRandom.current().nextInt(10) == 0 ? 1000 : 10;
+            return new TestCaseBuilder<Long>()
+                .expectAsync(() -> remoteSquare(7, delayMillis))
+                .toEqual(49L);
+        });
+    }
+}
@@ -0,0 +1,30 @@
+package examples.Discovery;
+
+import UTester.*;
+import examples.Vectors.Vector;
+
+/**
+ * Tests which are found by annotation instead of being registered in a main method. Run them
+ * with {@code java UTester.TestDiscovery}, or write an index first with
+ * {@code java UTester.TestDiscovery --write-index <classes>/META-INF/utester-tests.idx} so that
+ * later runs skip scanning.
+ */
+public class VectorTests {
+    @RunTest("Vector.zero(3) has dimension 3")
+    static TestResult zeroHasDimension() {
+        return new IntTestCaseBuilder()
+            .expect(() -> Vector.zero(3).dim())
+            .toEqual(3);
+    }
+
+    // Methods may also return a whole test, such as a property, which is then run instead
+    @RunTest(value = "Vector.dot is symmetric", runs = 100)
+    static Test dotIsSymmetric() {
+        Generator<Vector> vectors = Generator
+            .doubleArrays(Generator.ints(-10, 10).map(i -> (double) i), 3, 3)
+            .map(Vector::new);
+        return new TestCaseBuilder<Double>()
+            .testing((Vector a, Vector b) -> a.dot(b) - b.dot(a))
+            .forAll(vectors, vectors, (call, a, b) -> call.toEqual(0.0));
+    }
+}
@@ -0,0 +1,41 @@
+package examples.Tables;
+
+import UTester.*;
+import examples.Vectors.Vector;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+public class DotProductTable {
+    public static void main(String[] args) throws IOException {
+        // Fixtures usually come from elsewhere, but here we write one with a million rows of
+        // x1,y1,x2,y2,expected dot product
+        Path fixture = Files.createTempFile("dot", ".csv");
+        fixture.toFile().deleteOnExit();
+        SplittableRandom random = new SplittableRandom(1);
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(fixture))) {
+            out.println("x1,y1,x2,y2,dot");
+            for (int i = 0; i < 1_000_000; i++) {
+                int x1 = random.nextInt(-100, 100);
+                int y1 = random.nextInt(-100, 100);
+                int x2 = random.nextInt(-100, 100);
+                int y2 = random.nextInt(-100, 100);
+                out.printf("%d,%d,%d,%d,%d%n", x1, y1, x2, y2, x1 * x2 + y1 * y2);
+            }
+        }
+
+        // Every run checks one row, and with parallelism the rows are split into batches. Since
+        // Vector.dot is broken, we stop after 100 failing rows
+        Table table = Table.csv(fixture, true);
+        new TestRunner(new TestSettings().withParallelism(4).withFailFast(100)).runTest(
+            "Vector.dot for every row of a table", table.numRows(),
+            table.test(row -> new DoubleTestCaseBuilder()
+                .expect(() -> new Vector(row.getDouble(0), row.getDouble(1))
+                    .dot(new Vector(row.getDouble(2), row.getDouble(3))))
+                .toEqual(row.getDouble(4)))
+        );
+    }
+}
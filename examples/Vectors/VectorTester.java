@@ -1,7 +1,9 @@
 package examples.Vectors;
 
 import UTester.*;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.SplittableRandom;
 
 public class VectorTester {
     public static void main(String[] args) {
@@ -30,13 +32,16 @@ public class VectorTester {
                 return TestResult.success();
             }
         );
-        // We can run tests multiple times by adding a parameter in the middle
+        // We can run tests multiple times by adding a parameter in the middle. Every run has its
+        // own seed for TestRandom, which failures report so the run can be replayed with
+        // TestFramework.replay
         TestFramework.runTest(
             "new Vector(double[]) with random inputs", 50, () -> {
-                int dim = 1 + (int) (10 * Math.random());
+                SplittableRandom random = TestRandom.current();
+                int dim = 1 + random.nextInt(10);
                 double[] arr = new double[dim];
                 for (int i = 0; i < dim; i++) {
-                    arr[i] = (int) (Math.random() * 2);
+                    arr[i] = random.nextInt(2);
                 }
                 Vector v = new Vector(arr);
                 if (v.dim() != dim) {
@@ -67,12 +72,14 @@ public class VectorTester {
                 .expect(() -> new Vector(2, 0).dot(new Vector(2, 0)))
                 .toEqual(4.0)
         );
+        // For int, long and double results there are specialized builders which avoid boxing,
+        // and DoubleTestCaseBuilder can also compare with a tolerance
         TestFramework.runTest(
             "Vector.dot for (1, 0) and (0, 1)",
-            () -> new TestCaseBuilder<Double>()
+            () -> new DoubleTestCaseBuilder()
                 .withInputString("new Vector(1, 0), new Vector(0, 1)")
                 .expect(() -> new Vector(1, 0).dot(new Vector(0, 1)))
-                .toEqual(0.0)
+                .toEqualWithin(0.0, 1e-9)
         );
 
         // Partial results of method chaining TestCaseBuilders are reusable!
@@ -115,5 +122,50 @@ public class VectorTester {
                 .expectCall(new Vector(1, 2, 3), new Vector(4, 5, 6))
                 .toEqual(new Vector(5, 7, 9), Vector::equals)
         );
+
+        // Large results are better compared with a Diff, which stops at the first difference and
+        // shows only the coordinates around it, instead of printing two vectors of 100000 values
+        Diff byCoordinates = Diff.structural().withView(Vector.class, Vector::toArray);
+        TestFramework.runTest(
+            "Vector.times for a large vector",
+            () -> new TestCaseBuilder<Vector>()
+                .expect(() -> Vector.basis(100_000, 0).times(2))
+                .toEqual(Vector.basis(100_000, 0).plus(Vector.basis(100_000, 0)), byCoordinates)
+        );
+
+        // Instead of writing inputs by hand, we can generate random ones. When a run fails, the
+        // generated inputs are shrunk to the simplest inputs which still fail
+        Generator<Vector> vectors = Generator
+            .doubleArrays(Generator.ints(-10, 10).map(i -> (double) i), 3, 3)
+            .map(Vector::new);
+        TestFramework.runTest(
+            "Vector.add for random vectors", 50,
+            vectorAddTester.forAll(vectors, vectors, (call, a, b) -> call.toEqual(
+                new Vector(a.get(0) + b.get(0), a.get(1) + b.get(1), a.get(2) + b.get(2)),
+                Vector::equals
+            ))
+        );
+
+        // Performance budgets are assertions too. Setting up the vectors is not timed, only the
+        // suppliers which are returned
+        TestFramework.runTest(
+            "Vector.dot scales linearly",
+            () -> TestCaseBuilder.toScaleAs(Complexity.LINEAR, n -> {
+                Vector v = new Vector(new double[n]);
+                return () -> v.dot(v);
+            })
+        );
+        Vector basis = Vector.basis(3, 1);
+        TestCaseBuilder<Double> get = new TestCaseBuilder<Double>().expect(() -> basis.get(1));
+        TestFramework.runTest(
+            "Vector.get takes at most 100ns", () -> get.toCompleteWithin(Duration.ofNanos(100))
+        );
+        // Results are boxed, so measure something which boxes to a cached Integer
+        TestFramework.runTest(
+            "Vector.toArray allocates only the copy",
+            () -> new TestCaseBuilder<Integer>()
+                .expect(() -> basis.toArray().length)
+                .toAllocateAtMost(48)
+        );
     }
 }